@@ -0,0 +1,26 @@
+package com.github.vasatanasov.brickwork.core;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar. Accepts the regular JMH command line options and always adds
+ * the allocation profiler, so every run reports the bytes allocated per operation.
+ */
+public class BenchmarkRunner {
+
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    CommandLineOptions options = new CommandLineOptions(args);
+    ChainedOptionsBuilder builder =
+        new OptionsBuilder().parent(options).addProfiler(GCProfiler.class);
+    if (options.getIncludes().isEmpty()) {
+      builder.include(BrickworkBenchmark.class.getSimpleName());
+    }
+    new Runner(builder.build()).run();
+  }
+}
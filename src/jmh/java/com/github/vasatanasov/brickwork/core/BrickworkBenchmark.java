@@ -0,0 +1,100 @@
+package com.github.vasatanasov.brickwork.core;
+
+import com.github.vasatanasov.brickwork.io.StreamInputReader;
+import com.github.vasatanasov.brickwork.models.Layer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/** Benchmarks of every phase of a run: parse, validate, solve and render. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx16g"})
+public class BrickworkBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class Wall {
+    @Param({"2x4", "100x100", "1000x1000", "10000x10000"})
+    public String size;
+
+    @Param({"HORIZONTAL", "VERTICAL", "MIXED", "STRIPES", "ADVERSARIAL"})
+    public Walls.Shape shape;
+
+    int rows;
+    int cols;
+    int[][] firstLayer;
+    byte[] text;
+    Brickwork firstLayerOnly;
+    Layer secondLayer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      String[] dimensions = size.split("x");
+      rows = Integer.parseInt(dimensions[0]);
+      cols = Integer.parseInt(dimensions[1]);
+      firstLayer = Walls.generate(rows, cols, shape);
+      text = Walls.toText(rows, cols, shape);
+      firstLayerOnly = Brickwork.init(rows, cols);
+      Brickwork solved = Brickwork.init(rows, cols);
+      solved.setFirstLayer(firstLayer);
+      solved.setSecondLayer();
+      secondLayer = solved.getSecondLayer();
+    }
+  }
+
+  /** Fresh brickwork holding a validated first layer, for every invocation. */
+  @State(Scope.Thread)
+  public static class Unsolved {
+    Brickwork brickwork;
+
+    @Setup(Level.Invocation)
+    public void setUp(Wall wall) {
+      brickwork = Brickwork.init(wall.rows, wall.cols);
+      brickwork.setFirstLayer(wall.firstLayer);
+    }
+  }
+
+  @Benchmark
+  public Brickwork readInput(Wall wall) throws IOException {
+    StreamInputReader reader = new StreamInputReader(new ByteArrayInputStream(wall.text));
+    return new Manager(reader).readFirstLayer();
+  }
+
+  @Benchmark
+  public Brickwork setFirstLayer(Wall wall) {
+    wall.firstLayerOnly.setFirstLayer(wall.firstLayer);
+    return wall.firstLayerOnly;
+  }
+
+  @Benchmark
+  public Layer setSecondLayer(Unsolved unsolved) {
+    unsolved.brickwork.setSecondLayer();
+    return unsolved.brickwork.getSecondLayer();
+  }
+
+  @Benchmark
+  public Layer placeBricks(Unsolved unsolved) {
+    while (unsolved.brickwork.placeBricks()) {}
+    return unsolved.brickwork.getSecondLayer();
+  }
+
+  @Benchmark
+  public String toPrettyString(Wall wall) {
+    return Brickwork.toPrettyString(wall.secondLayer);
+  }
+}
@@ -0,0 +1,57 @@
+package com.github.vasatanasov.brickwork.core;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/** First layers of various shapes used by the benchmarks, see {@link WallGenerator}. */
+public final class Walls {
+
+  public enum Shape {
+    /** Every row made of horizontal bricks. */
+    HORIZONTAL,
+    /** Every pair of rows made of vertical bricks. */
+    VERTICAL,
+    /** 2x2 blocks of either two horizontal or two vertical bricks, picked at random. */
+    MIXED,
+    /** Pairs of rows made of horizontal and vertical bricks in turn. */
+    STRIPES,
+    /** Mixed, except for the last pair of rows on which the greedy solver gets stuck. */
+    ADVERSARIAL
+  }
+
+  private static final long SEED = 42;
+
+  private Walls() {}
+
+  static int[][] generate(int rows, int cols, Shape shape) {
+    return generator(shape).generate(rows, cols);
+  }
+
+  /** @return the layer in the text format read by {@link Manager} */
+  static byte[] toText(int rows, int cols, Shape shape) {
+    StringBuilder text = new StringBuilder();
+    try {
+      generator(shape).write(rows, cols, text);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return text.toString().getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private static WallGenerator generator(Shape shape) {
+    WallGenerator generator = WallGenerator.of(SEED);
+    switch (shape) {
+      case HORIZONTAL:
+        return generator.horizontalRatio(1);
+      case VERTICAL:
+        return generator.horizontalRatio(0);
+      case STRIPES:
+        return generator.pattern(WallGenerator.Pattern.STRIPES);
+      case ADVERSARIAL:
+        return generator.pattern(WallGenerator.Pattern.ADVERSARIAL);
+      default:
+        return generator;
+    }
+  }
+}
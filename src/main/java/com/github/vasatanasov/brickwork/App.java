@@ -1,18 +1,83 @@
 package com.github.vasatanasov.brickwork;
 
+import com.github.vasatanasov.brickwork.core.BrickworkBatch;
+import com.github.vasatanasov.brickwork.core.BrickworkServer;
 import com.github.vasatanasov.brickwork.core.Manager;
+import com.github.vasatanasov.brickwork.core.SolutionCache;
+import com.github.vasatanasov.brickwork.error.ErrorLog;
 import com.github.vasatanasov.brickwork.io.InputReader;
-import com.github.vasatanasov.brickwork.io.InputReaderImpl;
+import com.github.vasatanasov.brickwork.io.StreamInputReader;
+import com.github.vasatanasov.brickwork.metrics.Metrics;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 public class App {
 
-  public static void main(String[] args) {
-    final BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(System.in));
-    InputReader reader = new InputReaderImpl(bufferedReader);
+  private static final int DEFAULT_PORT = 8080;
+  private static final int REQUESTS_PER_WORKER = 64;
+  private static final long CACHED_CELLS = 1 << 24;
+
+  public static void main(String[] args) throws IOException {
+    List<String> options = Arrays.asList(args);
+    ErrorLog.setEnabled(options.contains("--verbose"));
+    int server = options.indexOf("--server");
+    if (server != -1) {
+      int port = server + 1 < args.length ? Integer.parseInt(args[server + 1]) : DEFAULT_PORT;
+      int maxCellsOption = options.indexOf("--max-cells");
+      long maxCells =
+          maxCellsOption != -1
+              ? Long.parseLong(args[maxCellsOption + 1])
+              : BrickworkServer.DEFAULT_MAX_CELLS;
+      int threads = Runtime.getRuntime().availableProcessors();
+      Metrics.get().registerMBean();
+      BrickworkServer brickworkServer =
+          BrickworkServer.start(port, threads, threads * REQUESTS_PER_WORKER, maxCells);
+      System.out.println("Listening on port " + brickworkServer.getPort());
+      return;
+    }
+
+    int binary = options.indexOf("--binary");
+    if (binary != -1) {
+      Manager.runBinary(Paths.get(args[binary + 1]), Paths.get(args[binary + 2]));
+      return;
+    }
+
+    InputReader reader = new StreamInputReader(System.in);
+    if (options.contains("--batch")) {
+      new BrickworkBatch(ForkJoinPool.commonPool()).run(reader, System.out);
+      System.out.flush();
+      return;
+    }
+
+    int cacheOption = options.indexOf("--cache");
+    if (cacheOption != -1) {
+      Path file = Paths.get(args[cacheOption + 1]);
+      SolutionCache cache = new SolutionCache(CACHED_CELLS);
+      if (Files.exists(file)) {
+        cache.load(file);
+      }
+      try {
+        new Manager(reader, cache).run();
+      } finally {
+        cache.save(file);
+      }
+      return;
+    }
+
     Manager manager = new Manager(reader);
-    manager.run();
+    int layers = options.indexOf("--layers");
+    if (layers != -1) {
+      manager.runLayers(Integer.parseInt(args[layers + 1]));
+    } else if (options.contains("--stream")) {
+      manager.runStreaming();
+    } else {
+      manager.run();
+    }
   }
 }
@@ -0,0 +1,65 @@
+package com.github.vasatanasov.brickwork.core;
+
+import com.github.vasatanasov.brickwork.models.Layer;
+
+/**
+ * Complete solver. Splits the layer into 2x2 blocks and covers every block with two parallel
+ * bricks:
+ *
+ * <ul>
+ *   <li>if a first-layer brick lies horizontally inside the block, the block gets two vertical
+ *       bricks; none of them can match a first-layer brick, because one of the block's rows is
+ *       taken by the horizontal one;
+ *   <li>otherwise the block gets two horizontal bricks, which cannot match a first-layer brick
+ *       either, since there is none lying horizontally inside the block.
+ * </ul>
+ *
+ * <p>Since rows and cols are always even, this proves that every valid first layer has a second
+ * layer, and finds it in a single pass over the cells.
+ */
+public class BlockSolver implements SecondLayerSolver {
+
+  @Override
+  public boolean solve(Layer firstLayer, Layer secondLayer) {
+    for (int row = 0; row < firstLayer.getRows(); row += 2) {
+      for (int col = 0; col < firstLayer.getCols(); col += 2) {
+        if (hasHorizontalBrick(firstLayer, row, col)) {
+          secondLayer.placeBrick(row, col, 1, 0);
+          secondLayer.placeBrick(row, col + 1, 1, 0);
+        } else {
+          secondLayer.placeBrick(row, col, 0, 1);
+          secondLayer.placeBrick(row + 1, col, 0, 1);
+        }
+      }
+    }
+    return secondLayer.isComplete();
+  }
+
+  @Override
+  public boolean solve(Layer firstLayer, Layer secondLayer, Deadline deadline) {
+    int blocks = 0;
+    for (int row = 0; row < firstLayer.getRows(); row += 2) {
+      for (int col = 0; col < firstLayer.getCols(); col += 2, blocks++) {
+        // Every block takes two bricks.
+        if ((blocks & (Deadline.CHECK_MASK >> 1)) == 0 && deadline.isExpired()) {
+          return false;
+        }
+        if (hasHorizontalBrick(firstLayer, row, col)) {
+          secondLayer.placeBrick(row, col, 1, 0);
+          secondLayer.placeBrick(row, col + 1, 1, 0);
+        } else {
+          secondLayer.placeBrick(row, col, 0, 1);
+          secondLayer.placeBrick(row + 1, col, 0, 1);
+        }
+      }
+    }
+    return secondLayer.isComplete();
+  }
+
+  private static boolean hasHorizontalBrick(Layer layer, int row, int col) {
+    long top = (long) row * layer.getCols() + col;
+    long bottom = top + layer.getCols();
+    return layer.getValue(top) == layer.getValue(top + 1)
+        || layer.getValue(bottom) == layer.getValue(bottom + 1);
+  }
+}
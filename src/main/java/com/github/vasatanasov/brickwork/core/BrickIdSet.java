@@ -0,0 +1,146 @@
+package com.github.vasatanasov.brickwork.core;
+
+import java.util.Arrays;
+
+/**
+ * Set of positive brick ids. Ids up to twice the number of bricks, which covers any sane
+ * numbering, are kept in a bitset; the rest go to a small open addressing table that grows only
+ * when such ids show up.
+ */
+class BrickIdSet {
+
+  private static final int INITIAL_TABLE_SIZE = 16;
+
+  private long bitLimit;
+  private long[] bits;
+  private int[] table;
+  private int tableSize;
+
+  /** @param bricks expected number of bricks */
+  BrickIdSet(long bricks) {
+    bitLimit = Math.min(2 * bricks + 1, Integer.MAX_VALUE);
+    bits = new long[(int) ((bitLimit + 63) >>> 6)];
+  }
+
+  /**
+   * Empties the set for a new layer, keeping the bitset when it is large enough.
+   *
+   * @param bricks expected number of bricks
+   */
+  void clear(long bricks) {
+    bitLimit = Math.min(2 * bricks + 1, Integer.MAX_VALUE);
+    int words = (int) ((bitLimit + 63) >>> 6);
+    if (bits.length < words) {
+      bits = new long[words];
+    } else {
+      Arrays.fill(bits, 0, words, 0);
+    }
+    if (tableSize > 0) {
+      Arrays.fill(table, 0);
+      tableSize = 0;
+    }
+  }
+
+  /**
+   * @param id positive brick id
+   * @return false if the id is already present
+   */
+  boolean add(int id) {
+    if (id < bitLimit) {
+      int word = id >>> 6;
+      long mask = 1L << id;
+      if ((bits[word] & mask) != 0) {
+        return false;
+      }
+      bits[word] |= mask;
+      return true;
+    }
+    return addToTable(id);
+  }
+
+  /**
+   * @param id positive brick id
+   * @return true if the id is present
+   */
+  boolean contains(int id) {
+    if (id < bitLimit) {
+      return (bits[id >>> 6] & (1L << id)) != 0;
+    }
+    return table != null && table[slot(table, id)] == id;
+  }
+
+  /**
+   * Removes the id, if present.
+   *
+   * @param id positive brick id
+   */
+  void remove(int id) {
+    if (id < bitLimit) {
+      bits[id >>> 6] &= ~(1L << id);
+      return;
+    }
+    if (table == null || table[slot(table, id)] != id) {
+      return;
+    }
+    // Moves back the ids probed past the freed slot, so no probe sequence is cut short.
+    int mask = table.length - 1;
+    int free = slot(table, id);
+    for (int next = (free + 1) & mask; table[next] != 0; next = (next + 1) & mask) {
+      int home = home(table[next], mask);
+      boolean between = free <= next ? free < home && home <= next : free < home || home <= next;
+      if (!between) {
+        table[free] = table[next];
+        free = next;
+      }
+    }
+    table[free] = 0;
+    tableSize--;
+  }
+
+  private boolean addToTable(int id) {
+    if (table == null) {
+      table = new int[INITIAL_TABLE_SIZE];
+    } else if (2 * (tableSize + 1) > table.length) {
+      grow();
+    }
+    if (!insert(table, id)) {
+      return false;
+    }
+    tableSize++;
+    return true;
+  }
+
+  private void grow() {
+    int[] grown = new int[table.length * 2];
+    for (int id : table) {
+      if (id != 0) {
+        insert(grown, id);
+      }
+    }
+    table = grown;
+  }
+
+  private static boolean insert(int[] table, int id) {
+    int slot = slot(table, id);
+    if (table[slot] == id) {
+      return false;
+    }
+    table[slot] = id;
+    return true;
+  }
+
+  // Linear probing, 0 marks an empty slot since ids are positive.
+  private static int slot(int[] table, int id) {
+    int mask = table.length - 1;
+    int slot = home(id, mask);
+    while (table[slot] != 0 && table[slot] != id) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private static int home(int id, int mask) {
+    int hash = id * 0x9E3779B9;
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+}
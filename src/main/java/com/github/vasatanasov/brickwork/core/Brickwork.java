@@ -1,27 +1,52 @@
 package com.github.vasatanasov.brickwork.core;
 
+import com.github.vasatanasov.brickwork.error.ErrorLog;
+import com.github.vasatanasov.brickwork.error.Failure;
+import com.github.vasatanasov.brickwork.io.LayerSource;
+import com.github.vasatanasov.brickwork.io.PrettyPrinter;
+import com.github.vasatanasov.brickwork.metrics.Metrics;
 import com.github.vasatanasov.brickwork.models.Layer;
+import com.github.vasatanasov.brickwork.models.LayerFactory;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
 
 /** Main application class contains the business logic for building the brick layers. */
 public class Brickwork {
 
-  // Integer arrays representing offsets by row and col for moving up, down, left and right in a
-  // matrix.
-  private static final int[] rowOffset = new int[] {0, -1, 0, 1};
-  private static final int[] colOffset = new int[] {1, 0, -1, 0};
+  /** Receives the layers built by {@link #stackLayers}. */
+  @FunctionalInterface
+  public interface LayerSink {
 
-  private final int rows, cols;
-  private final Layer firstLayer;
-  private final Layer secondLayer;
+    /**
+     * @param course number of the layer, from 2 up to the number of layers
+     * @param layer the layer, valid only until the method returns
+     * @throws IOException if the layer cannot be written
+     */
+    void accept(int course, Layer layer) throws IOException;
+  }
+
+  private int rows, cols;
+  // Swapped after every course when stacking layers, see stackLayers.
+  private Layer firstLayer;
+  private Layer secondLayer;
+  private final GreedySolver greedySolver = new GreedySolver();
+  private final SecondLayerSolver solver;
+  private final SolveResult result = new SolveResult();
+  private BrickIdSet ids;
+  // Ids of the first layer, kept up to date by applyDelta; only valid while indexed is set.
+  private BrickIdSet firstLayerIds;
+  private boolean firstLayerIndexed;
+  private final Metrics metrics = Metrics.get();
+  // Never expires, for the solves without a deadline.
+  private final Deadline noDeadline = Deadline.none();
 
-  private Brickwork(int rows, int cols) {
+  private Brickwork(int rows, int cols, LayerFactory layerFactory, SecondLayerSolver solver) {
     this.rows = rows;
     this.cols = cols;
-    firstLayer = Layer.of(rows, cols);
-    secondLayer = Layer.of(rows, cols);
+    this.solver = solver;
+    firstLayer = layerFactory.create(rows, cols);
+    secondLayer = layerFactory.create(rows, cols);
   }
 
   /**
@@ -32,7 +57,60 @@ public class Brickwork {
    * @return
    */
   public static Brickwork init(int rows, int cols) {
-    return new Brickwork(rows, cols);
+    return init(rows, cols, LayerFactory.heap(), new BlockSolver());
+  }
+
+  /**
+   * Static factory method for instantiating the class with a custom solver used whenever the
+   * greedy fast path cannot complete the second layer.
+   *
+   * @param rows
+   * @param cols
+   * @param solver complete solver for the layouts the greedy one gets stuck on
+   * @return
+   */
+  public static Brickwork init(int rows, int cols, SecondLayerSolver solver) {
+    return init(rows, cols, LayerFactory.heap(), solver);
+  }
+
+  /**
+   * Static factory method for instantiating the class with layers created by the given factory,
+   * e.g. {@link LayerFactory#mapped} for walls that do not fit in the heap.
+   *
+   * @param rows
+   * @param cols
+   * @param layerFactory storage of the first and the second layer
+   * @param solver complete solver for the layouts the greedy one gets stuck on
+   * @return
+   */
+  public static Brickwork init(
+      int rows, int cols, LayerFactory layerFactory, SecondLayerSolver solver) {
+    return new Brickwork(rows, cols, layerFactory, solver);
+  }
+
+  /**
+   * Prepares the instance for another wall, reusing the storage of both layers when it is large
+   * enough. Solving walls of the same size over and over this way allocates nothing.
+   *
+   * @param rows
+   * @param cols
+   * @throws IllegalArgumentException if the dimensions are invalid
+   */
+  public void reset(int rows, int cols) {
+    firstLayer.reset(rows, cols);
+    secondLayer.reset(rows, cols);
+    greedySolver.reset();
+    firstLayerIndexed = false;
+    this.rows = rows;
+    this.cols = cols;
+  }
+
+  public int getRows() {
+    return rows;
+  }
+
+  public int getCols() {
+    return cols;
   }
 
   public Layer getSecondLayer() {
@@ -46,212 +124,422 @@ public class Brickwork {
    */
   public void setFirstLayer(int[][] input) {
     for (int row = 0; row < rows; row++) {
-      for (int col = 0; col < cols; col++) {
-        isValidNumber(input[row][col]);
-        checkBrickSpan(row, col, input);
-        firstLayer.setValue(row, col, input[row][col]);
-      }
+      setFirstLayerRow(row, input[row]);
     }
+    validateFirstLayer();
   }
 
   /**
-   * Sets the second layer of bricks.
+   * Copies the first layer from the source without validating it, see {@link
+   * #setFirstLayerRow(int, int[])}. The state {@link #placeBricks()} keeps for the previous first
+   * layer is dropped.
    *
-   * @throws IllegalArgumentException if there is no chance to complete the layer.
+   * @param source layer of the same dimensions
+   * @throws IllegalArgumentException if the dimensions differ
    */
-  public void setSecondLayer() {
-    while (!secondLayer.isComplete()) {
-      if (!placeBricks()) {
-        System.err.println("Could not find solution");
-        throw new IllegalArgumentException();
-      }
+  public void setFirstLayer(LayerSource source) {
+    if (source.getRows() != rows || source.getCols() != cols) {
+      ErrorLog.log("Layer dimensions do not match");
+      throw new IllegalArgumentException();
+    }
+    int[] values = new int[cols];
+    for (int row = 0; row < rows; row++) {
+      source.readRow(row, values);
+      setFirstLayerRow(row, values);
     }
   }
 
   /**
-   * Makes sure brick's value is positive integer
+   * Copies a row of the first layer without validating it. Once all rows are set the layer must
+   * be checked with {@link #validateFirstLayer()}. The state {@link #placeBricks()} keeps for the
+   * previous first layer is dropped.
    *
-   * @param value
-   * @throws IllegalArgumentException if value is less than 1
+   * @param row
+   * @param values int array holding at least cols values
+   */
+  public void setFirstLayerRow(int row, int[] values) {
+    firstLayer.setRow(row, values);
+    firstLayerIndexed = false;
+    greedySolver.reset();
+  }
+
+  /**
+   * Makes sure the first layer consists of valid bricks, see {@link FirstLayerValidator}.
+   *
+   * @throws IllegalArgumentException if any brick is invalid
    */
-  private void isValidNumber(int value) {
-    if (value <= 0) {
-      System.err.println("Brick's value must be more than or equal to 1.");
+  public void validateFirstLayer() {
+    FirstLayerValidator.validate(firstLayer, clearFirstLayerIds());
+    firstLayerIndexed = true;
+  }
+
+  /**
+   * Sets the second layer of bricks. Tries the {@link GreedySolver} first and, if it gets stuck,
+   * starts over with the configured complete solver.
+   *
+   * @throws IllegalArgumentException if there is no chance to complete the layer.
+   */
+  public void setSecondLayer() {
+    if (!solveSecondLayer()) {
+      ErrorLog.log(Failure.NO_SOLUTION.getReason());
       throw new IllegalArgumentException();
     }
   }
 
   /**
-   * Helper method to make sure that the brick has exactly span of 2 row/col. First if there is a
-   * brick in any direction and second if there are no bricks with more than 2 row/col span.
+   * Validates the first layer and sets the second one without throwing on invalid input. Meant
+   * for heavy traffic where many walls are rejected; see {@link SolveResult}.
    *
-   * @param row
-   * @param col
-   * @param layer
-   * @throws IllegalArgumentException when no brick with 1x2 or 2x1 found.
+   * @return the second layer, or the first failure found. The same instance is returned by every
+   *     call.
    */
-  private void checkBrickSpan(int row, int col, int[][] layer) {
-    int currentValue = layer[row][col];
-    isBrick(row, col, layer);
-    for (int i = 0; i < 4; i++) {
-      visitCell(row, rowOffset[i], col, colOffset[i], currentValue, 1, layer);
+  public SolveResult solve() {
+    long start = System.nanoTime();
+    boolean valid = checkFirstLayer();
+    start = metrics.record(Metrics.Phase.VALIDATE, start);
+    if (!valid) {
+      return reject(result);
     }
+    boolean solved = solveSecondLayer();
+    metrics.record(Metrics.Phase.SOLVE, start);
+    if (!solved) {
+      result.fail(Failure.NO_SOLUTION);
+      return reject(result);
+    }
+    return accept(result.succeed(secondLayer));
   }
 
   /**
-   * Helper method to make sure that there are two equal adjacent halves.
+   * Variant of {@link #solve()} giving up once the deadline passes, so a pathological wall cannot
+   * hold the calling thread for long. The result then holds the bricks placed so far, see {@link
+   * SolveResult}; every uncovered cell lies at or after its first uncovered cell in row-major
+   * order, and reads 0.
    *
-   * @param row
-   * @param col
-   * @param layer
-   * @throws IllegalArgumentException when there is no adjacent half
+   * @param deadline checked every {@link Deadline#CHECK_INTERVAL} placed bricks
+   * @return the second layer, the partial one if the deadline passed, or the first failure found
    */
-  private void isBrick(int row, int col, int[][] layer) {
-    for (int i = 0; i < 4; i++) {
-      int otherRow = row + rowOffset[i];
-      int otherCol = col + colOffset[i];
-      boolean isInRange = !outOfRange(otherRow, otherCol);
-      if (isInRange && layer[row][col] == layer[otherRow][otherCol]) {
-        return;
+  public SolveResult solve(Deadline deadline) {
+    long start = System.nanoTime();
+    boolean valid = checkFirstLayer();
+    start = metrics.record(Metrics.Phase.VALIDATE, start);
+    if (!valid) {
+      return reject(result);
+    }
+    boolean solved = solveSecondLayer(deadline);
+    metrics.record(Metrics.Phase.SOLVE, start);
+    if (solved) {
+      return accept(result.succeed(secondLayer));
+    }
+    if (deadline.isExpired()) {
+      long cells = (long) rows * cols;
+      long cell = 0;
+      while (cell < cells - 1 && secondLayer.getValue(cell) != 0) {
+        cell++;
       }
+      return reject(result.expire(secondLayer, (int) (cell / cols), (int) (cell % cols)));
     }
-
-    System.err.println("Invalid brick. It must have 2 equal halves");
-    throw new IllegalArgumentException();
+    result.fail(Failure.NO_SOLUTION);
+    return reject(result);
   }
 
   /**
-   * Recursive method for visiting adjacent cells to find the span of the brick.
+   * Variant of {@link #solve()} reusing the solution of a first layer of the same shape from the
+   * cache, see {@link #setSecondLayer(SolutionCache)}.
    *
-   * @param row
-   * @param rowOffset
-   * @param col
-   * @param colOffset
-   * @param value
-   * @param occurrences
-   * @param layer
-   * @throws IllegalArgumentException when no brick with 1x2 or 2x1 found.
+   * @param cache solutions of the first layers solved so far
+   * @return the second layer, or the first failure found
    */
-  private void visitCell(
-      int row, int rowOffset, int col, int colOffset, int value, int occurrences, int[][] layer) {
-    int nextRow = row + rowOffset;
-    int nextCol = col + colOffset;
-    if (outOfRange(row, col) || outOfRange(nextRow, nextCol)) {
-      return;
+  public SolveResult solve(SolutionCache cache) {
+    long start = System.nanoTime();
+    boolean valid = checkFirstLayer();
+    start = metrics.record(Metrics.Phase.VALIDATE, start);
+    if (!valid) {
+      return reject(result);
     }
-    int nextValue = layer[nextRow][nextCol];
-    if (nextValue != value) {
-      return;
+    SolutionCache.Key key = SolutionCache.key(firstLayer);
+    boolean solved = cache.get(key, secondLayer);
+    if (!solved) {
+      solved = solveSecondLayer();
+      if (solved) {
+        cache.put(key, secondLayer);
+      }
     }
-    if (++occurrences > 2) {
-      System.err.println("Invalid brick with span of more than 2 cells");
-      throw new IllegalArgumentException();
+    metrics.record(Metrics.Phase.SOLVE, start);
+    if (!solved) {
+      result.fail(Failure.NO_SOLUTION);
+      return reject(result);
     }
-    visitCell(nextRow, rowOffset, nextCol, colOffset, value, occurrences, layer);
+    return accept(result.succeed(secondLayer));
+  }
+
+  private SolveResult accept(SolveResult result) {
+    metrics.recordWall((long) rows * cols, true);
+    return result;
   }
 
-  private boolean outOfRange(int row, int col) {
-    return (row < 0 || row >= rows) || (col < 0 || col >= cols);
+  private SolveResult reject(SolveResult result) {
+    metrics.recordWall((long) rows * cols, false);
+    return result;
   }
 
   /**
-   * Method responsible for building the second layer. First it checks if brick can be placed
-   * horizontally; first half is at layer[row][col], second half is at layer[row][col+1]. Then if
-   * not possible horizontally it tries to place it vertically; first half at layer[row][col],
-   * second half at layer[row-1][col].
+   * Verifies the second layer against the first one, e.g. before it is sent out; see {@link
+   * SecondLayerVerifier}. Reuses the memory of the validation, so it allocates nothing.
    *
-   * @return false if there is no possibility to place the brick in the second layer.
+   * @return the second layer, or the first failure found. The same instance is returned by {@link
+   *     #solve()}.
    */
-  public boolean placeBricks() {
-    boolean isBrickPlaced = false;
+  public SolveResult verify() {
+    if (!SecondLayerVerifier.check(firstLayer, secondLayer, result, clearIds())) {
+      return result;
+    }
+    return result.succeed(secondLayer);
+  }
 
-    for (int row = 0; row < rows; row++) {
-      for (int col = 0; col < cols; col++) {
-        if (firstLayer.canPlaceBrick(row, col, rowOffset[0], colOffset[0])) {
-          secondLayer.placeBrick(row, col, rowOffset[0], colOffset[0]);
-          firstLayer.markAsPlaced(row, col, rowOffset[0], colOffset[0]);
-          isBrickPlaced = true;
-          break;
-        } else if (firstLayer.canPlaceBrick(row, col, rowOffset[1], colOffset[1])) {
-          secondLayer.placeBrick(row, col, rowOffset[1], colOffset[1]);
-          firstLayer.markAsPlaced(row, col, rowOffset[1], colOffset[1]);
-          isBrickPlaced = true;
-          break;
-        }
-      }
+  private boolean checkFirstLayer() {
+    firstLayerIndexed = FirstLayerValidator.check(firstLayer, result, clearFirstLayerIds());
+    return firstLayerIndexed;
+  }
+
+  private BrickIdSet clearIds() {
+    long bricks = (long) rows * cols / 2;
+    if (ids == null) {
+      ids = new BrickIdSet(bricks);
+    } else {
+      ids.clear(bricks);
+    }
+    return ids;
+  }
 
-      if (isBrickPlaced) break;
+  private BrickIdSet clearFirstLayerIds() {
+    firstLayerIndexed = false;
+    long bricks = (long) rows * cols / 2;
+    if (firstLayerIds == null) {
+      firstLayerIds = new BrickIdSet(bricks);
+    } else {
+      firstLayerIds.clear(bricks);
     }
+    return firstLayerIds;
+  }
 
-    return isBrickPlaced;
+  private boolean solveSecondLayer() {
+    return solveSecondLayer(noDeadline);
   }
 
-  private static final String ASTERISK = "*";
-  private static final String SPACE = " ";
+  private boolean solveSecondLayer(Deadline deadline) {
+    boolean solved = greedySolver.solve(firstLayer, secondLayer, deadline);
+    long probes = greedySolver.getProbes();
+    if (!solved && deadline.isExpired()) {
+      greedySolver.clearUncovered(secondLayer);
+    } else if (!solved) {
+      secondLayer.clear();
+      solved = solver.solve(firstLayer, secondLayer, deadline);
+    }
+    metrics.recordSearch(secondLayer.getTotalBricks(), probes);
+    return solved;
+  }
 
-  public static String toPrettyString(Layer layer) {
-    StringBuilder sb = new StringBuilder();
-
-    for (int row = 0; row < layer.getRows(); row++) {
-      List<String> brickLine = new ArrayList<>();
-      StringBuilder separation = new StringBuilder();
-      brickLine.add(ASTERISK);
-      separation.append(ASTERISK);
-
-      for (int col = 0; col < layer.getCols() - 1; col++) {
-        int currentValue = layer.getValue(row, col);
-        int nextValue = layer.getValue(row, col + 1);
-
-        if (currentValue != nextValue) {
-          brickLine.add(String.valueOf(currentValue));
-          separation.append(SPACE);
-          if (currentValue >= 10) {
-            separation.append(SPACE);
-          }
-        } else {
-          brickLine.add(formatBrickValues(currentValue));
-          separation.append(ASTERISK.repeat(5));
-          col++;
-          if (col < layer.getCols() - 1) {
-            nextValue = layer.getValue(row, col + 1);
-          }
-        }
-        brickLine.add(ASTERISK);
-        separation.append(ASTERISK);
-
-        if (col == layer.getCols() - 2) {
-          brickLine.add(String.valueOf(nextValue));
-          brickLine.add(ASTERISK);
-          if (currentValue != nextValue) {
-            separation.append(SPACE);
-          }
-          separation.append(ASTERISK);
+  /**
+   * Replaces the bricks of the first layer in a rectangular region and repairs the solved second
+   * layer around it, see {@link LocalRepair}. Only the region and the cells next to it are
+   * validated, and the new ids are checked against the ids of the layer kept since its last
+   * validation, so a delta costs time in proportion to its size. Falls back to solving the whole
+   * second layer when the local repair does not succeed.
+   *
+   * <p>A first layer set row by row is validated as a whole on the first delta.
+   *
+   * @param fromRow first row of the region
+   * @param fromCol first col of the region
+   * @param values new values of the region, row by row, all rows equally long
+   * @throws IllegalArgumentException if the first layer is invalid, the region is not rectangular
+   *     or does not fit the layer, the bricks around it become invalid or a new id is already used
+   *     outside the region
+   */
+  public void applyDelta(int fromRow, int fromCol, int[][] values) {
+    int toRow = fromRow + values.length;
+    int toCol = fromCol + (values.length == 0 ? 0 : values[0].length);
+    if (fromRow < 0 || fromCol < 0 || toRow > rows || toCol > cols) {
+      ErrorLog.log("Delta does not fit the layer");
+      throw new IllegalArgumentException();
+    }
+    for (int[] rowValues : values) {
+      if (rowValues.length != toCol - fromCol) {
+        ErrorLog.log("Delta rows must be equally long");
+        throw new IllegalArgumentException();
+      }
+    }
+    if (!firstLayerIndexed) {
+      validateFirstLayer();
+    }
+    int[] previous = new int[(toRow - fromRow) * (toCol - fromCol)];
+    int[] previousIds = new int[previous.length];
+    int previousCount = regionIds(fromRow, fromCol, toRow, toCol, previousIds);
+    int[] newIds = new int[previous.length];
+    for (int row = fromRow, i = 0; row < toRow; row++) {
+      for (int col = fromCol; col < toCol; col++, i++) {
+        previous[i] = firstLayer.getValue(row, col);
+        firstLayer.setValue(row, col, values[row - fromRow][col - fromCol]);
+      }
+    }
+    try {
+      FirstLayerValidator.validate(firstLayer, fromRow, fromCol, toRow, toCol);
+      int newCount = regionIds(fromRow, fromCol, toRow, toCol, newIds);
+      replaceIds(previousIds, previousCount, newIds, newCount);
+    } catch (IllegalArgumentException e) {
+      for (int row = fromRow, i = 0; row < toRow; row++) {
+        for (int col = fromCol; col < toCol; col++, i++) {
+          firstLayer.setValue(row, col, previous[i]);
         }
       }
-      String brickLineString = String.join("", brickLine);
+      throw e;
+    }
 
-      if (row == 0) {
-        sb.append(ASTERISK.repeat(brickLineString.length()));
-        sb.append(System.lineSeparator());
+    if (!secondLayer.isComplete()
+        || LocalRepair.repair(firstLayer, secondLayer, fromRow, fromCol, toRow, toCol)) {
+      return;
+    }
+    secondLayer.clear();
+    setSecondLayer();
+  }
+
+  // The ids of the bricks whose first half, the upper or the left one, lies inside the region.
+  private int regionIds(int fromRow, int fromCol, int toRow, int toCol, int[] ids) {
+    int count = 0;
+    for (int row = fromRow; row < toRow; row++) {
+      for (int col = fromCol; col < toCol; col++) {
+        int value = firstLayer.getValue(row, col);
+        if ((col < cols - 1 && firstLayer.getValue(row, col + 1) == value)
+            || (row < rows - 1 && firstLayer.getValue(row + 1, col) == value)) {
+          ids[count++] = value;
+        }
       }
+    }
+    return count;
+  }
 
-      sb.append(brickLineString);
-      sb.append(System.lineSeparator());
-      if (row < layer.getRows() - 1) {
-        sb.append(separation).append(System.lineSeparator());
+  /**
+   * Swaps the ids of the replaced bricks for the new ones in the index of the first layer.
+   *
+   * @throws IllegalArgumentException if a new id is used by a brick outside the region, the index
+   *     is left unchanged then
+   */
+  private void replaceIds(int[] previousIds, int previousCount, int[] newIds, int newCount) {
+    for (int i = 0; i < previousCount; i++) {
+      firstLayerIds.remove(previousIds[i]);
+    }
+    // The new ids differ from each other, the validation of the region made sure of it.
+    for (int i = 0; i < newCount; i++) {
+      if (firstLayerIds.contains(newIds[i])) {
+        for (int j = 0; j < previousCount; j++) {
+          firstLayerIds.add(previousIds[j]);
+        }
+        ErrorLog.log(Failure.DUPLICATE_ID.getReason());
+        throw new IllegalArgumentException();
       }
+    }
+    for (int i = 0; i < newCount; i++) {
+      firstLayerIds.add(newIds[i]);
+    }
+  }
 
-      if (row == layer.getRows() - 1) {
-        sb.append(ASTERISK.repeat(brickLineString.length()));
-        sb.append(System.lineSeparator());
+  /**
+   * Builds layers 2 to the given number on top of the first layer, each one on top of the previous.
+   * Every layer is handed to the sink as soon as it is built and then becomes the bottom of the
+   * next one. The two layers just swap their roles, so no storage is allocated and the layers the
+   * solvers built are not validated again. Afterwards {@link #getSecondLayer()} returns the top
+   * layer.
+   *
+   * @param layers total number of layers, including the first one
+   * @param sink receives every built layer
+   * @throws IllegalArgumentException if the first layer is invalid or a layer cannot be built
+   * @throws IOException if the sink cannot write a layer
+   */
+  public void stackLayers(int layers, LayerSink sink) throws IOException {
+    if (layers < 2) {
+      ErrorLog.log("Number of layers must be at least 2");
+      throw new IllegalArgumentException();
+    }
+    validateFirstLayer();
+    for (int course = 2; course <= layers; course++) {
+      if (course > 2) {
+        Layer bottom = firstLayer;
+        firstLayer = secondLayer;
+        secondLayer = bottom;
+        firstLayerIndexed = false;
+        secondLayer.setTotalBricks(0);
       }
+      setSecondLayer();
+      sink.accept(course, secondLayer);
+    }
+  }
+
+  /**
+   * Variant of {@link #setSecondLayer()} reusing the solution of a first layer of the same shape
+   * from the cache. A layer solved on a miss is added to the cache.
+   *
+   * @param cache solutions of the first layers solved so far
+   * @throws IllegalArgumentException if there is no chance to complete the layer.
+   */
+  public void setSecondLayer(SolutionCache cache) {
+    SolutionCache.Key key = SolutionCache.key(firstLayer);
+    if (cache.get(key, secondLayer)) {
+      return;
+    }
+
+    setSecondLayer();
+    cache.put(key, secondLayer);
+  }
+
+  /**
+   * Parallel variant of {@link #setSecondLayer()}. Splits the layer into bands solved concurrently
+   * by {@link ParallelSolver}, and produces exactly the same second layer. Falls back to the
+   * sequential run when any band cannot be completed on its own, or right away when the storage of
+   * the second layer does not support concurrent writes.
+   *
+   * @param pool pool the bands are solved on
+   * @throws IllegalArgumentException if there is no chance to complete the layer.
+   */
+  public void setSecondLayer(ForkJoinPool pool) {
+    if (!secondLayer.supportsConcurrentWrites()) {
+      setSecondLayer();
+      return;
+    }
+    if (new ParallelSolver(pool).solve(firstLayer, secondLayer)) {
+      return;
     }
 
-    return sb.toString().trim();
+    secondLayer.clear();
+    setSecondLayer();
+  }
+
+  /**
+   * All second layers of the first layer, for counting them or picking the best one, see {@link
+   * SolutionSpace}. The first layer must be valid.
+   *
+   * @return second layers of the first layer
+   * @throws IllegalArgumentException if the layer is too wide to explore
+   */
+  public SolutionSpace getSolutionSpace() {
+    return SolutionSpace.of(firstLayer);
   }
 
-  private static String formatBrickValues(int value) {
-    if (value >= 10) return "" + value + " " + value;
-    return " " + value + " " + value + " ";
+  /**
+   * Places the next brick of the second layer using the greedy first-fit strategy; see {@link
+   * GreedySolver#placeBrick}.
+   *
+   * @return false if there is no possibility to place the brick in the second layer.
+   */
+  public boolean placeBricks() {
+    return greedySolver.placeBrick(firstLayer, secondLayer);
+  }
+
+  /**
+   * Draws the layer with asterisks around the bricks, see {@link PrettyPrinter}.
+   *
+   * @param layer
+   * @return the drawing
+   */
+  public static String toPrettyString(Layer layer) {
+    return PrettyPrinter.toPrettyString(layer);
   }
 }
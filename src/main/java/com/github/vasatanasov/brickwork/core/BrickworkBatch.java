@@ -0,0 +1,235 @@
+package com.github.vasatanasov.brickwork.core;
+
+import com.github.vasatanasov.brickwork.io.InputReader;
+import com.github.vasatanasov.brickwork.models.Layer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Solves many walls at once. Every wall is solved by its own {@link Brickwork} on the given
+ * executor, e.g. a {@link java.util.concurrent.ForkJoinPool} or, on newer JVMs, a virtual-thread
+ * executor.
+ *
+ * <p>The batch input consists of records in the format read by {@link Manager}: a line with the
+ * dimensions followed by the rows of the first layer. Records are separated by empty lines. The
+ * output lists the second layers in input order, again separated by empty lines, with {@code -1}
+ * in place of every wall that is invalid or has no solution. A batch may be limited to a number of
+ * cells, counted over all of its walls; a wall beyond the limit is skipped as invalid before any
+ * memory is allocated for it.
+ */
+public class BrickworkBatch {
+
+  // Instances kept per processor, enough for the walls in flight on a busy executor.
+  private static final int POOLED_PER_PROCESSOR = 4;
+
+  private final Executor executor;
+  private final long maxCells;
+  private final BrickworkPool pool =
+      new BrickworkPool(Runtime.getRuntime().availableProcessors() * POOLED_PER_PROCESSOR);
+
+  /** @param executor executor the walls are solved on */
+  public BrickworkBatch(Executor executor) {
+    this(executor, Long.MAX_VALUE);
+  }
+
+  /**
+   * @param executor executor the walls are solved on
+   * @param maxCells number of cells all walls of a batch may have together
+   */
+  public BrickworkBatch(Executor executor, long maxCells) {
+    this.executor = executor;
+    this.maxCells = maxCells;
+  }
+
+  /**
+   * Reads all records, solves them concurrently and writes the results in input order.
+   *
+   * @param reader batch input
+   * @param out destination of the results
+   * @throws IOException if the input cannot be read or the output cannot be written
+   */
+  public void run(InputReader reader, Appendable out) throws IOException {
+    for (Result result : solve(read(reader, maxCells))) {
+      out.append(result.toString()).append(System.lineSeparator());
+      out.append(System.lineSeparator());
+    }
+  }
+
+  /**
+   * Solves the walls concurrently. A wall that fails does not affect the others.
+   *
+   * @param walls
+   * @return results in the order of the walls
+   */
+  public List<Result> solve(List<Wall> walls) {
+    List<CompletableFuture<Result>> futures = new ArrayList<>(walls.size());
+    for (Wall wall : walls) {
+      futures.add(CompletableFuture.supplyAsync(() -> wall.solve(pool), executor));
+    }
+    List<Result> results = new ArrayList<>(walls.size());
+    for (CompletableFuture<Result> future : futures) {
+      results.add(future.join());
+    }
+    return results;
+  }
+
+  /**
+   * Reads the records of a batch input until its end. A record that cannot be parsed is kept as
+   * an invalid wall, and reading goes on with the next record.
+   *
+   * @param reader batch input
+   * @return walls in input order
+   * @throws IOException if the input cannot be read
+   */
+  public static List<Wall> read(InputReader reader) throws IOException {
+    return read(reader, Long.MAX_VALUE);
+  }
+
+  /**
+   * Variant of {@link #read(InputReader)} limiting the number of cells of the batch. A wall that
+   * would exceed the limit is kept as an invalid wall, without reading its rows into memory.
+   *
+   * @param reader batch input
+   * @param maxCells number of cells all walls may have together
+   * @return walls in input order
+   * @throws IOException if the input cannot be read
+   */
+  public static List<Wall> read(InputReader reader, long maxCells) throws IOException {
+    List<Wall> walls = new ArrayList<>();
+    long cells = 0;
+    int[] dimensions = new int[2];
+    while (true) {
+      int count;
+      try {
+        count = reader.readInts(dimensions);
+      } catch (NumberFormatException e) {
+        skipRecord(reader);
+        walls.add(Wall.INVALID);
+        continue;
+      }
+      if (count == -1) {
+        return walls;
+      }
+      if (count == 0) {
+        continue;
+      }
+      Wall wall =
+          count == 2
+              ? readWall(reader, dimensions[0], dimensions[1], maxCells - cells)
+              : invalid(reader);
+      cells += (long) wall.rows * wall.cols;
+      walls.add(wall);
+    }
+  }
+
+  private static Wall readWall(InputReader reader, int rows, int cols, long maxCells)
+      throws IOException {
+    if (rows < 2 || cols < 2 || (long) rows * cols > Math.min(maxCells, Integer.MAX_VALUE)) {
+      return invalid(reader);
+    }
+    List<int[]> input = new ArrayList<>(rows);
+    int[] row = new int[cols];
+    while (true) {
+      int count;
+      try {
+        count = reader.readInts(row);
+      } catch (NumberFormatException e) {
+        return invalid(reader);
+      }
+      if (count <= 0) {
+        break;
+      }
+      if (count != cols || input.size() == rows) {
+        return invalid(reader);
+      }
+      input.add(row.clone());
+    }
+    if (input.size() != rows) {
+      return Wall.INVALID;
+    }
+    return new Wall(rows, cols, input.toArray(new int[0][]));
+  }
+
+  private static Wall invalid(InputReader reader) throws IOException {
+    skipRecord(reader);
+    return Wall.INVALID;
+  }
+
+  // Skips the lines up to the empty line ending the current record.
+  private static void skipRecord(InputReader reader) throws IOException {
+    String line;
+    while ((line = reader.readLine()) != null && !line.isBlank()) {}
+  }
+
+  /** First layer of a single wall of the batch. */
+  public static class Wall {
+    static final Wall INVALID = new Wall(0, 0, null);
+
+    private final int rows, cols;
+    private final int[][] firstLayer;
+
+    /**
+     * @param rows
+     * @param cols
+     * @param firstLayer int array representing layer's layout.
+     */
+    public Wall(int rows, int cols, int[][] firstLayer) {
+      this.rows = rows;
+      this.cols = cols;
+      this.firstLayer = firstLayer;
+    }
+
+    Result solve(BrickworkPool pool) {
+      if (firstLayer == null || rows % 2 != 0 || cols % 2 != 0) {
+        return Result.NO_SOLUTION;
+      }
+      Brickwork brickwork = pool.acquire(rows, cols);
+      try {
+        for (int row = 0; row < rows; row++) {
+          brickwork.setFirstLayerRow(row, firstLayer[row]);
+        }
+        SolveResult result = brickwork.solve();
+        if (!result.isSolved()) {
+          return Result.NO_SOLUTION;
+        }
+        // The pooled layer is reused by the next wall, so the result keeps its own copy.
+        Layer secondLayer = Layer.of(rows, cols);
+        secondLayer.copyFrom(result.getSecondLayer());
+        return new Result(secondLayer);
+      } finally {
+        pool.release(brickwork);
+      }
+    }
+  }
+
+  /** Second layer of a single wall of the batch, or none if the wall has no solution. */
+  public static class Result {
+    static final Result NO_SOLUTION = new Result(null);
+    private static final String NO_SOLUTION_OUTPUT = "-1";
+
+    private final Layer secondLayer;
+
+    private Result(Layer secondLayer) {
+      this.secondLayer = secondLayer;
+    }
+
+    public boolean isSolved() {
+      return secondLayer != null;
+    }
+
+    /** @return the second layer or null if the wall has no solution */
+    public Layer getSecondLayer() {
+      return secondLayer;
+    }
+
+    /** @return the rows of the second layer or -1 if the wall has no solution */
+    @Override
+    public String toString() {
+      return isSolved() ? secondLayer.toString() : NO_SOLUTION_OUTPUT;
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package com.github.vasatanasov.brickwork.core;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Bounded pool of {@link Brickwork} instances for solving many small walls. An instance taken from
+ * the pool is reset to the requested dimensions, keeping its storage when it is large enough, so
+ * in a steady stream of walls of similar sizes solving allocates nothing. Neither taking nor
+ * returning an instance ever blocks: an empty pool creates a new instance and a full one drops the
+ * returned instance.
+ */
+public class BrickworkPool {
+
+  private final BlockingQueue<Brickwork> idle;
+
+  /** @param capacity maximum number of idle instances kept */
+  public BrickworkPool(int capacity) {
+    idle = new ArrayBlockingQueue<>(capacity);
+  }
+
+  /**
+   * @param rows
+   * @param cols
+   * @return an instance for a wall of the given dimensions, to be given back with {@link #release}
+   * @throws IllegalArgumentException if the dimensions are invalid
+   */
+  public Brickwork acquire(int rows, int cols) {
+    Brickwork brickwork = idle.poll();
+    if (brickwork == null) {
+      return Brickwork.init(rows, cols);
+    }
+    brickwork.reset(rows, cols);
+    return brickwork;
+  }
+
+  /**
+   * Returns an instance to the pool. Its layers must not be used afterwards.
+   *
+   * @param brickwork instance taken with {@link #acquire}
+   */
+  public void release(Brickwork brickwork) {
+    idle.offer(brickwork);
+  }
+}
@@ -0,0 +1,152 @@
+package com.github.vasatanasov.brickwork.core;
+
+import com.github.vasatanasov.brickwork.error.ErrorLog;
+import com.github.vasatanasov.brickwork.io.StreamInputReader;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-running HTTP endpoint solving walls in a warm JVM. A {@code POST} to {@value #PATH} takes
+ * the batch input of {@link BrickworkBatch} in its body, a single wall being a batch of one, and
+ * answers with the batch output.
+ *
+ * <p>Requests are solved on a bounded pool of workers with a bounded queue in front of it. When
+ * both are full the request is turned down right away with {@code 503 Service Unavailable}, so the
+ * clients back off instead of piling up on the server. The walls of a request may have a limited
+ * number of cells together, so a single request cannot exhaust the heap; walls beyond the limit
+ * are answered with {@code -1}.
+ */
+public class BrickworkServer {
+
+  static final String PATH = "/solve";
+  /** Cells the walls of a request may have together unless configured otherwise. */
+  public static final long DEFAULT_MAX_CELLS = 1 << 24;
+
+  private static final int OK = 200;
+  private static final int METHOD_NOT_ALLOWED = 405;
+  private static final int INTERNAL_SERVER_ERROR = 500;
+  private static final int SERVICE_UNAVAILABLE = 503;
+  private static final int NO_BODY = -1;
+
+  private final HttpServer httpServer;
+  private final ExecutorService workers;
+  private final BrickworkBatch batch;
+
+  BrickworkServer(InetSocketAddress address, ExecutorService workers, long maxCells)
+      throws IOException {
+    this.workers = workers;
+    // Requests are already served concurrently, so the walls of one request are solved in place.
+    this.batch = new BrickworkBatch(Runnable::run, maxCells);
+    this.httpServer = HttpServer.create(address, 0);
+    this.httpServer.createContext(PATH, this::dispatch);
+  }
+
+  /**
+   * Starts a server listening on the given port, accepting up to {@link #DEFAULT_MAX_CELLS} cells
+   * per request.
+   *
+   * @param port port to listen on, 0 for any free port
+   * @param threads number of workers solving requests
+   * @param queueCapacity number of requests waiting for a worker before new ones are turned down
+   * @return the running server
+   * @throws IOException if the port cannot be bound
+   */
+  public static BrickworkServer start(int port, int threads, int queueCapacity)
+      throws IOException {
+    return start(port, threads, queueCapacity, DEFAULT_MAX_CELLS);
+  }
+
+  /**
+   * Starts a server listening on the given port.
+   *
+   * @param port port to listen on, 0 for any free port
+   * @param threads number of workers solving requests
+   * @param queueCapacity number of requests waiting for a worker before new ones are turned down
+   * @param maxCells number of cells the walls of a request may have together
+   * @return the running server
+   * @throws IOException if the port cannot be bound
+   */
+  public static BrickworkServer start(int port, int threads, int queueCapacity, long maxCells)
+      throws IOException {
+    ThreadPoolExecutor workers =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            new ThreadPoolExecutor.AbortPolicy());
+    BrickworkServer server =
+        new BrickworkServer(new InetSocketAddress(port), workers, maxCells);
+    server.httpServer.start();
+    return server;
+  }
+
+  void start() {
+    httpServer.start();
+  }
+
+  /** @return the port the server listens on */
+  public int getPort() {
+    return httpServer.getAddress().getPort();
+  }
+
+  /** Stops accepting requests and lets the workers finish the ones already taken. */
+  public void stop() {
+    httpServer.stop(0);
+    workers.shutdown();
+  }
+
+  // Runs on the thread of the HTTP server, so it only hands the exchange over to a worker.
+  private void dispatch(HttpExchange exchange) throws IOException {
+    if (!"POST".equals(exchange.getRequestMethod())) {
+      respond(exchange, METHOD_NOT_ALLOWED, "");
+      return;
+    }
+    try {
+      workers.execute(() -> solve(exchange));
+    } catch (RejectedExecutionException e) {
+      respond(exchange, SERVICE_UNAVAILABLE, "");
+    }
+  }
+
+  // The exchange is closed whatever happens, so the client never waits for an answer in vain.
+  private void solve(HttpExchange exchange) {
+    try (InputStream body = exchange.getRequestBody()) {
+      StringBuilder out = new StringBuilder();
+      batch.run(new StreamInputReader(body), out);
+      respond(exchange, OK, out.toString());
+    } catch (IOException e) {
+      ErrorLog.log(e.getMessage());
+    } catch (RuntimeException e) {
+      ErrorLog.log(e.toString());
+      try {
+        respond(exchange, INTERNAL_SERVER_ERROR, "");
+      } catch (IOException | RuntimeException ignored) {
+        // The response was already under way, closing the exchange is all that is left.
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.US_ASCII);
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=US-ASCII");
+    exchange.sendResponseHeaders(status, bytes.length == 0 ? NO_BODY : bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+}
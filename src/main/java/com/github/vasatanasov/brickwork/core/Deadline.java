@@ -0,0 +1,74 @@
+package com.github.vasatanasov.brickwork.core;
+
+import java.time.Duration;
+
+/**
+ * Point in time a solve must give up at, which may also be cancelled early from another thread.
+ * The solvers poll it every {@value #CHECK_INTERVAL} placed bricks only, so checking it costs next
+ * to nothing and the solve overruns the deadline by that many placements at most.
+ */
+public final class Deadline {
+
+  /** Number of bricks placed between two checks of the deadline. */
+  public static final int CHECK_INTERVAL = 1 << 10;
+
+  static final int CHECK_MASK = CHECK_INTERVAL - 1;
+
+  private final long expiresAt;
+  private final boolean timed;
+  private volatile boolean cancelled;
+  // Check the deadline expires on, 0 if the checks are not counted; see afterChecks.
+  private int expiringCheck;
+  private int checks;
+
+  private Deadline(long expiresAt, boolean timed) {
+    this.expiresAt = expiresAt;
+    this.timed = timed;
+  }
+
+  /**
+   * @param timeout time left from now
+   * @return deadline expiring after the timeout, or when cancelled
+   */
+  public static Deadline after(Duration timeout) {
+    return new Deadline(System.nanoTime() + timeout.toNanos(), true);
+  }
+
+  /** @return deadline expiring only when cancelled */
+  public static Deadline none() {
+    return new Deadline(0, false);
+  }
+
+  /**
+   * Deadline expiring on the given check rather than at a point in time, so a solve stops after a
+   * known number of placed bricks, e.g. in tests. The checks are counted without synchronization,
+   * so the deadline is meant for a single thread.
+   *
+   * @param check number of the check the deadline expires on, from 1
+   * @return deadline expiring on the check, or when cancelled
+   */
+  static Deadline afterChecks(int check) {
+    Deadline deadline = new Deadline(0, false);
+    deadline.expiringCheck = check;
+    return deadline;
+  }
+
+  /** @return number of checks so far of a deadline made by {@link #afterChecks} */
+  int getChecks() {
+    return checks;
+  }
+
+  /** Makes the deadline expire right away. Safe to call from any thread. */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /** @return true if the deadline has passed or was cancelled */
+  public boolean isExpired() {
+    if (expiringCheck > 0 && ++checks >= expiringCheck) {
+      cancelled = true;
+    }
+    // Compared as a difference, so the check survives a wrap-around of System.nanoTime.
+    return cancelled || (timed && System.nanoTime() - expiresAt >= 0);
+  }
+}
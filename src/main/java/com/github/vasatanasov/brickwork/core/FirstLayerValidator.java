@@ -0,0 +1,224 @@
+package com.github.vasatanasov.brickwork.core;
+
+import com.github.vasatanasov.brickwork.error.ErrorLog;
+import com.github.vasatanasov.brickwork.error.Failure;
+import com.github.vasatanasov.brickwork.models.Layer;
+
+/**
+ * Validates a first layer. A layer is valid when every value is a positive integer and every cell
+ * has exactly one adjacent cell with the same value, i.e. every brick spans exactly two cells.
+ *
+ * <p>A whole {@link Layer} is checked with {@link #validate(Layer)}, which also makes sure that
+ * every brick id is used once. Alternatively the rows may be streamed in with {@link
+ * #addRow(int[])}; only the previous row is kept in memory then, so ids are not checked for
+ * duplicates.
+ */
+public class FirstLayerValidator {
+
+  private final int cols;
+  private int[] previous;
+  private int[] previousNeighbours;
+  private int[] neighbours;
+  private int rowsSeen;
+
+  public FirstLayerValidator(int cols) {
+    this.cols = cols;
+    previous = new int[cols];
+    previousNeighbours = new int[cols];
+    neighbours = new int[cols];
+  }
+
+  /**
+   * Validates the layer in a single pass without recursion. Each cell is compared with its four
+   * neighbours only, and the id of every brick is recorded once, when its first half is visited.
+   *
+   * @param layer
+   * @throws IllegalArgumentException if a value is not positive, a brick does not span exactly 2
+   *     cells or a brick id is used more than once
+   */
+  public static void validate(Layer layer) {
+    SolveResult result = new SolveResult();
+    if (!check(layer, result)) {
+      reject(result.getFailure());
+    }
+  }
+
+  /**
+   * Variant of {@link #validate(Layer)} recording the ids in a set kept by the caller.
+   *
+   * @param layer
+   * @param ids empty set sized for the layer, holds the id of every brick if the layer is valid
+   * @throws IllegalArgumentException if a value is not positive, a brick does not span exactly 2
+   *     cells or a brick id is used more than once
+   */
+  static void validate(Layer layer, BrickIdSet ids) {
+    SolveResult result = new SolveResult();
+    if (!check(layer, result, ids)) {
+      reject(result.getFailure());
+    }
+  }
+
+  /**
+   * Same checks as {@link #validate(Layer)}, reporting the first invalid cell through the result
+   * instead of throwing.
+   *
+   * @param layer
+   * @param result receives the failure, left untouched if the layer is valid
+   * @return true if the layer is valid
+   */
+  static boolean check(Layer layer, SolveResult result) {
+    return check(layer, result, new BrickIdSet((long) layer.getRows() * layer.getCols() / 2));
+  }
+
+  /**
+   * Variant of {@link #check(Layer, SolveResult)} recording the ids in a set kept by the caller.
+   *
+   * @param layer
+   * @param result receives the failure, left untouched if the layer is valid
+   * @param ids empty set sized for the layer
+   * @return true if the layer is valid
+   */
+  static boolean check(Layer layer, SolveResult result, BrickIdSet ids) {
+    int rows = layer.getRows();
+    int cols = layer.getCols();
+    long index = 0;
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < cols; col++, index++) {
+        int value = layer.getValue(index);
+        if (value <= 0) {
+          return result.fail(Failure.INVALID_NUMBER, row, col);
+        }
+        boolean left = col > 0 && layer.getValue(index - 1) == value;
+        boolean up = row > 0 && layer.getValue(index - cols) == value;
+        boolean right = col < cols - 1 && layer.getValue(index + 1) == value;
+        boolean down = row < rows - 1 && layer.getValue(index + cols) == value;
+        Failure failure =
+            neighboursFailure((left ? 1 : 0) + (up ? 1 : 0) + (right ? 1 : 0) + (down ? 1 : 0));
+        if (failure != null) {
+          return result.fail(failure, row, col);
+        }
+        // The only equal neighbour lies right or below, so this is the first half of the brick.
+        if ((right || down) && !ids.add(value)) {
+          return result.fail(Failure.DUPLICATE_ID, row, col);
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Validates the cells of a region and the ones around it, e.g. after some bricks were replaced.
+   * Brick ids are checked for duplicates only among the bricks starting inside the region, the
+   * caller is left to compare them with the rest of the layer.
+   *
+   * @param layer
+   * @param fromRow first row of the region
+   * @param fromCol first col of the region
+   * @param toRow row after the last one of the region
+   * @param toCol col after the last one of the region
+   * @throws IllegalArgumentException if a value in the region is not positive, a brick does not
+   *     span exactly 2 cells or a brick id is used more than once
+   */
+  public static void validate(Layer layer, int fromRow, int fromCol, int toRow, int toCol) {
+    int rows = layer.getRows();
+    int cols = layer.getCols();
+    BrickIdSet ids = new BrickIdSet((long) (toRow - fromRow) * (toCol - fromCol));
+    for (int row = Math.max(0, fromRow - 1); row < Math.min(rows, toRow + 1); row++) {
+      for (int col = Math.max(0, fromCol - 1); col < Math.min(cols, toCol + 1); col++) {
+        long index = (long) row * cols + col;
+        int value = layer.getValue(index);
+        boolean inside = row >= fromRow && row < toRow && col >= fromCol && col < toCol;
+        if (inside) {
+          isValidNumber(value);
+        }
+        boolean left = col > 0 && layer.getValue(index - 1) == value;
+        boolean up = row > 0 && layer.getValue(index - cols) == value;
+        boolean right = col < cols - 1 && layer.getValue(index + 1) == value;
+        boolean down = row < rows - 1 && layer.getValue(index + cols) == value;
+        checkNeighbours((left ? 1 : 0) + (up ? 1 : 0) + (right ? 1 : 0) + (down ? 1 : 0));
+        if (inside && (right || down) && !ids.add(value)) {
+          reject(Failure.DUPLICATE_ID);
+        }
+      }
+    }
+  }
+
+  /**
+   * Validates the next row. The cells of the previous row are complete once their lower
+   * neighbours are known, so they are checked here as well.
+   *
+   * @param row values of the row, at least cols long
+   * @throws IllegalArgumentException if a value is not positive or a brick does not span exactly
+   *     2 cells
+   */
+  public void addRow(int[] row) {
+    for (int col = 0; col < cols; col++) {
+      int value = row[col];
+      isValidNumber(value);
+      int count = 0;
+      if (col > 0 && row[col - 1] == value) count++;
+      if (col < cols - 1 && row[col + 1] == value) count++;
+      if (rowsSeen > 0 && previous[col] == value) {
+        count++;
+        previousNeighbours[col]++;
+      }
+      neighbours[col] = count;
+    }
+    if (rowsSeen > 0) {
+      checkNeighbours(previousNeighbours);
+    }
+
+    System.arraycopy(row, 0, previous, 0, cols);
+    int[] swap = previousNeighbours;
+    previousNeighbours = neighbours;
+    neighbours = swap;
+    rowsSeen++;
+  }
+
+  /**
+   * Validates the last row.
+   *
+   * @throws IllegalArgumentException if a brick of the last row does not span exactly 2 cells
+   */
+  public void finish() {
+    checkNeighbours(previousNeighbours);
+  }
+
+  /**
+   * Makes sure brick's value is positive integer
+   *
+   * @param value
+   * @throws IllegalArgumentException if value is less than 1
+   */
+  private static void isValidNumber(int value) {
+    if (value <= 0) {
+      reject(Failure.INVALID_NUMBER);
+    }
+  }
+
+  private void checkNeighbours(int[] counts) {
+    for (int col = 0; col < cols; col++) {
+      checkNeighbours(counts[col]);
+    }
+  }
+
+  private static void checkNeighbours(int count) {
+    Failure failure = neighboursFailure(count);
+    if (failure != null) {
+      reject(failure);
+    }
+  }
+
+  /** @return null if the cell has exactly one equal neighbour */
+  static Failure neighboursFailure(int count) {
+    if (count == 0) {
+      return Failure.MISSING_HALF;
+    }
+    return count > 1 ? Failure.SPAN_TOO_LONG : null;
+  }
+
+  private static void reject(Failure failure) {
+    ErrorLog.log(failure.getReason());
+    throw new IllegalArgumentException();
+  }
+}
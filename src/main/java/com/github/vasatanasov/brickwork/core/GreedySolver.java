@@ -0,0 +1,230 @@
+package com.github.vasatanasov.brickwork.core;
+
+import com.github.vasatanasov.brickwork.models.Layer;
+
+import java.util.Arrays;
+
+/**
+ * First-fit solver. Scans the cells in row-major order and places a brick horizontally (to the
+ * right) where possible, otherwise vertically (upwards). It is fast and keeps the historical
+ * numbering of the bricks, but it never undoes a placement, so it can get stuck on layouts that do
+ * have a solution.
+ *
+ * <p>The first layer is read once, into bitsets telling which adjacent cells belong to the same
+ * brick. The covered cells of the second layer are tracked in a bitset too, so the scan skips a
+ * whole word of covered cells at a time and the first layer is left untouched.
+ */
+public class GreedySolver implements SecondLayerSolver {
+
+  // Bit i is set if cell i is covered by the second layer.
+  private long[] covered;
+  // Bit i is set if cell i cannot take a brick to its right: the cell next to it is the other half
+  // of the same first-layer brick, or there is none.
+  private long[] rightForbidden;
+  // Bit i is set if cell i cannot take a brick upwards, for the same reasons.
+  private long[] upForbidden;
+  private Layer preparedLayer;
+  private long total;
+  private int cols;
+  private long probes;
+
+  // Row-major index of the first cell not yet proven unable to hold a brick. Placing a brick only
+  // ever removes options, so a cell that was skipped once can never become placeable later.
+  private long cursor;
+
+  @Override
+  public boolean solve(Layer firstLayer, Layer secondLayer) {
+    prepare(firstLayer);
+    while (!secondLayer.isComplete()) {
+      if (!placeBrick(firstLayer, secondLayer)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean solve(Layer firstLayer, Layer secondLayer, Deadline deadline) {
+    prepare(firstLayer);
+    for (int placed = 0; !secondLayer.isComplete(); placed++) {
+      if ((placed & Deadline.CHECK_MASK) == 0 && deadline.isExpired()) {
+        return false;
+      }
+      if (!placeBrick(firstLayer, secondLayer)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Places the next brick of the second layer. Each call resumes the scan from the cell after the
+   * last placed brick, so building a whole layer visits every cell once.
+   *
+   * @param firstLayer
+   * @param secondLayer
+   * @return false if there is no possibility to place the brick in the second layer.
+   */
+  public boolean placeBrick(Layer firstLayer, Layer secondLayer) {
+    if (firstLayer != preparedLayer) {
+      prepare(firstLayer);
+    }
+    while (cursor < total) {
+      int word = (int) (cursor >>> 6);
+      long free = ~covered[word] & (-1L << cursor);
+      if (free == 0) {
+        cursor = (long) (word + 1) << 6;
+        continue;
+      }
+      long cell = ((long) word << 6) + Long.numberOfTrailingZeros(free);
+      if (cell >= total) {
+        break;
+      }
+      cursor = cell + 1;
+      probes++;
+      if (!isSet(rightForbidden, cell) && !isSet(covered, cell + 1)) {
+        place(secondLayer, cell, cell + 1);
+        return true;
+      }
+      if (!isSet(upForbidden, cell) && !isSet(covered, cell - cols)) {
+        place(secondLayer, cell, cell - cols);
+        return true;
+      }
+    }
+
+    cursor = total;
+    return false;
+  }
+
+  /**
+   * Zeroes the cells of the second layer not covered since the first layer was prepared, so a
+   * layer given up on before it was complete holds no values of an earlier wall.
+   *
+   * @param secondLayer
+   */
+  void clearUncovered(Layer secondLayer) {
+    for (int word = 0; (long) word << 6 < total; word++) {
+      for (long free = ~covered[word]; free != 0; free &= free - 1) {
+        long cell = ((long) word << 6) + Long.numberOfTrailingZeros(free);
+        if (cell >= total) {
+          break;
+        }
+        secondLayer.setValue(cell, 0);
+      }
+    }
+  }
+
+  /** @return number of free cells examined for a brick since the first layer was prepared */
+  public long getProbes() {
+    return probes;
+  }
+
+  /** Drops the state kept for the last solved first layer, e.g. after it was reset. */
+  public void reset() {
+    preparedLayer = null;
+  }
+
+  // The bitsets are reused as long as they are large enough.
+  private void prepare(Layer firstLayer) {
+    int rows = firstLayer.getRows();
+    cols = firstLayer.getCols();
+    total = (long) rows * cols;
+    int words = (int) ((total + Long.SIZE - 1) >>> 6);
+    if (covered == null || covered.length < words) {
+      covered = new long[words];
+      rightForbidden = new long[words];
+      upForbidden = new long[words];
+    } else {
+      Arrays.fill(covered, 0, words, 0);
+      Arrays.fill(rightForbidden, 0, words, 0);
+      Arrays.fill(upForbidden, 0, words, 0);
+    }
+    long index = 0;
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < cols; col++, index++) {
+        int value = firstLayer.getValue(index);
+        if (col == cols - 1 || firstLayer.getValue(index + 1) == value) {
+          set(rightForbidden, index);
+        }
+        if (row == 0 || firstLayer.getValue(index - cols) == value) {
+          set(upForbidden, index);
+        }
+      }
+    }
+    preparedLayer = firstLayer;
+    cursor = 0;
+    probes = 0;
+  }
+
+  private void place(Layer secondLayer, long cell, long otherCell) {
+    int brickId = secondLayer.getTotalBricks() + 1;
+    secondLayer.setValue(cell, brickId);
+    secondLayer.setValue(otherCell, brickId);
+    secondLayer.setTotalBricks(brickId);
+    set(covered, cell);
+    set(covered, otherCell);
+  }
+
+  private static boolean isSet(long[] bits, long index) {
+    return (bits[(int) (index >>> 6)] & (1L << index)) != 0;
+  }
+
+  private static void set(long[] bits, long index) {
+    bits[(int) (index >>> 6)] |= 1L << index;
+  }
+
+  /**
+   * Covers the rows from fromRow to toRow, exclusive, on their own. Bricks are numbered from
+   * firstBrickId in placement order, and no brick reaches above fromRow, so bands of rows that no
+   * first-layer brick crosses may be solved concurrently. A band that is completed this way holds
+   * exactly the bricks a run over the whole layer would place there, provided the bands above it
+   * are completed too.
+   *
+   * <p>The covered cells are tracked in a bitset of the band, so the first layer is only read. The
+   * brick count of the second layer is left for the caller to update.
+   *
+   * @param firstLayer
+   * @param secondLayer
+   * @param fromRow first row of the band
+   * @param toRow row after the last row of the band
+   * @param firstBrickId id of the first placed brick
+   * @return true if the band was completed
+   */
+  public static boolean solveBand(
+      Layer firstLayer, Layer secondLayer, int fromRow, int toRow, int firstBrickId) {
+    int cols = firstLayer.getCols();
+    long offset = (long) fromRow * cols;
+    long cells = (long) (toRow - fromRow) * cols;
+    // Bit i is set if cell i of the band is covered by the second layer.
+    long[] covered = new long[(int) ((cells + Long.SIZE - 1) >>> 6)];
+    int brickId = firstBrickId;
+    long cell = 0;
+    for (int row = fromRow; row < toRow; row++) {
+      for (int col = 0; col < cols; col++, cell++) {
+        if (isSet(covered, cell)) {
+          continue;
+        }
+        int value = firstLayer.getValue(offset + cell);
+        long otherCell;
+        // Moving up is not an option in the first row of the band.
+        if (col + 1 < cols
+            && !isSet(covered, cell + 1)
+            && firstLayer.getValue(offset + cell + 1) != value) {
+          otherCell = cell + 1;
+        } else if (row > fromRow
+            && !isSet(covered, cell - cols)
+            && firstLayer.getValue(offset + cell - cols) != value) {
+          otherCell = cell - cols;
+        } else {
+          continue;
+        }
+        secondLayer.setValue(offset + cell, brickId);
+        secondLayer.setValue(offset + otherCell, brickId);
+        set(covered, cell);
+        set(covered, otherCell);
+        brickId++;
+      }
+    }
+    return 2L * (brickId - firstBrickId) == (long) (toRow - fromRow) * cols;
+  }
+}
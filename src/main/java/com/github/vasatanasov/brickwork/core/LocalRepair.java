@@ -0,0 +1,161 @@
+package com.github.vasatanasov.brickwork.core;
+
+import com.github.vasatanasov.brickwork.models.Layer;
+
+/**
+ * Repairs a complete second layer after some bricks of the first layer were replaced. Only the
+ * bricks inside a window around the edited region are taken down and laid again with a
+ * backtracking search; the bricks crossing the edge of the window stay where they are. When the
+ * window cannot be covered that way it is grown by two cells on every side, so the cost of a
+ * repair follows the size of the edit rather than the size of the wall.
+ *
+ * <p>The laid bricks reuse the ids of the removed ones, so the brick count does not change.
+ */
+class LocalRepair {
+
+  // Windows larger than this are left to a full solve, which is cheaper per cell.
+  private static final int MAX_WINDOW_CELLS = 1 << 20;
+  // Search steps allowed per cell of the window before it is grown.
+  private static final int STEPS_PER_CELL = 16;
+  private static final int RIGHT = 0, DOWN = 1;
+
+  private LocalRepair() {}
+
+  /**
+   * @param firstLayer edited first layer
+   * @param secondLayer complete second layer solved before the edit
+   * @param fromRow first edited row
+   * @param fromCol first edited col
+   * @param toRow row after the last edited one
+   * @param toCol col after the last edited one
+   * @return false if the window grew too large, the second layer is unchanged then
+   */
+  static boolean repair(
+      Layer firstLayer, Layer secondLayer, int fromRow, int fromCol, int toRow, int toCol) {
+    int rows = firstLayer.getRows();
+    int cols = firstLayer.getCols();
+    // Every replaced first-layer brick lies within one cell of the edited region.
+    int top = Math.max(0, (fromRow - 1) & ~1);
+    int left = Math.max(0, (fromCol - 1) & ~1);
+    int bottom = Math.min(rows, (toRow + 2) & ~1);
+    int right = Math.min(cols, (toCol + 2) & ~1);
+    while ((long) (bottom - top) * (right - left) <= MAX_WINDOW_CELLS) {
+      if (repairWindow(firstLayer, secondLayer, top, left, bottom, right)) {
+        return true;
+      }
+      if (top == 0 && left == 0 && bottom == rows && right == cols) {
+        return false;
+      }
+      top = Math.max(0, top - 2);
+      left = Math.max(0, left - 2);
+      bottom = Math.min(rows, bottom + 2);
+      right = Math.min(cols, right + 2);
+    }
+    return false;
+  }
+
+  private static boolean repairWindow(
+      Layer firstLayer, Layer secondLayer, int top, int left, int bottom, int right) {
+    int height = bottom - top;
+    int width = right - left;
+    int size = height * width;
+    int cols = firstLayer.getCols();
+    int[] first = new int[size];
+    int[] second = new int[size];
+    for (int row = 0; row < height; row++) {
+      long index = (long) (top + row) * cols + left;
+      for (int col = 0; col < width; col++) {
+        first[row * width + col] = firstLayer.getValue(index + col);
+        second[row * width + col] = secondLayer.getValue(index + col);
+      }
+    }
+
+    // Take down the bricks lying entirely inside the window, keep the ones crossing its edge.
+    int[] ids = new int[size / 2];
+    int freed = 0;
+    int[] window = second.clone();
+    for (int cell = 0; cell < size; cell++) {
+      int col = cell % width;
+      boolean pairedRight = col + 1 < width && second[cell + 1] == second[cell];
+      boolean pairedDown = cell + width < size && second[cell + width] == second[cell];
+      boolean pairedLeft = col > 0 && second[cell - 1] == second[cell];
+      boolean pairedUp = cell >= width && second[cell - width] == second[cell];
+      if (pairedRight || pairedDown) {
+        ids[freed++] = second[cell];
+      }
+      if (pairedRight || pairedDown || pairedLeft || pairedUp) {
+        window[cell] = 0;
+      }
+    }
+
+    if (!fill(first, window, width, ids, (long) size * STEPS_PER_CELL)) {
+      return false;
+    }
+    for (int row = 0; row < height; row++) {
+      long index = (long) (top + row) * cols + left;
+      for (int col = 0; col < width; col++) {
+        secondLayer.setValue(index + col, window[row * width + col]);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Covers the empty cells of the window with bricks not matching the first layer. The first empty
+   * cell in row-major order always gets the next brick, either to its right or below it, and the
+   * search backtracks when neither fits.
+   *
+   * @return false if the window cannot be covered within the given number of steps
+   */
+  private static boolean fill(int[] first, int[] window, int width, int[] ids, long steps) {
+    int size = window.length;
+    int[] cells = new int[ids.length];
+    int[] directions = new int[ids.length];
+    int placed = 0;
+    int cell = 0;
+    int direction = RIGHT;
+    while (true) {
+      while (cell < size && window[cell] != 0) {
+        cell++;
+      }
+      if (cell == size) {
+        return true;
+      }
+      if (--steps < 0) {
+        return false;
+      }
+
+      for (; direction <= DOWN; direction++) {
+        int other = otherHalf(cell, direction, width, size);
+        if (other != -1 && window[other] == 0 && first[other] != first[cell]) {
+          window[cell] = window[other] = ids[placed];
+          cells[placed] = cell;
+          directions[placed] = direction;
+          placed++;
+          break;
+        }
+      }
+      if (direction <= DOWN) {
+        cell++;
+        direction = RIGHT;
+        continue;
+      }
+
+      if (placed == 0) {
+        return false;
+      }
+      placed--;
+      cell = cells[placed];
+      direction = directions[placed];
+      window[cell] = window[otherHalf(cell, direction, width, size)] = 0;
+      direction++;
+    }
+  }
+
+  private static int otherHalf(int cell, int direction, int width, int size) {
+    if (direction == RIGHT) {
+      return cell % width + 1 < width ? cell + 1 : -1;
+    }
+    return cell + width < size ? cell + width : -1;
+  }
+}
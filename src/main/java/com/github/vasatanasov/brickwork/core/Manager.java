@@ -1,10 +1,17 @@
 package com.github.vasatanasov.brickwork.core;
 
+import com.github.vasatanasov.brickwork.error.ErrorLog;
 import com.github.vasatanasov.brickwork.error.NoSolutionException;
+import com.github.vasatanasov.brickwork.io.BinaryLayerReader;
+import com.github.vasatanasov.brickwork.io.BinaryLayerWriter;
 import com.github.vasatanasov.brickwork.io.InputReader;
+import com.github.vasatanasov.brickwork.io.PrettyPrinter;
+import com.github.vasatanasov.brickwork.metrics.Metrics;
 
 import java.io.IOException;
-import java.util.Arrays;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
 
 /**
  * Class used for reading and passing the input to main application class {@link
@@ -15,16 +22,28 @@ import java.util.Arrays;
 public class Manager {
 
   private final InputReader reader;
+  private final SolutionCache cache;
+  private final Metrics metrics = Metrics.get();
   private Brickwork brickwork;
   private int rows;
   private int cols;
+  private int[] rowBuffer;
 
   /**
    * @param reader Interface containing the readLine() method. Relays on dependency injection.
    *     Suitable for mock testing
    */
   public Manager(InputReader reader) {
+    this(reader, null);
+  }
+
+  /**
+   * @param reader Interface containing the readLine() method.
+   * @param cache solutions looked up before solving the second layer, null for none
+   */
+  public Manager(InputReader reader, SolutionCache cache) {
     this.reader = reader;
+    this.cache = cache;
   }
 
   /**
@@ -33,20 +52,141 @@ public class Manager {
    */
   public void run() {
     try {
-      System.out.println("Enter layers' dimension (NxM) separated by space on the first line and");
-      System.out.println("then on each N row enter M columns separated by space.");
-      String[] tokens = reader.readLine().split("\\s+");
-      rows = Integer.parseInt(tokens[0]);
-      cols = Integer.parseInt(tokens[1]);
-      brickwork = Brickwork.init(rows, cols);
-      int[][] input = readInput();
-      brickwork.setFirstLayer(input);
-      brickwork.setSecondLayer();
-      System.out.println(Brickwork.toPrettyString(brickwork.getSecondLayer()));
+      printInstructions();
+      long start = System.nanoTime();
+      readFirstLayer();
+      metrics.record(Metrics.Phase.PARSE, start);
+      SolveResult result = cache == null ? brickwork.solve() : brickwork.solve(cache);
+      if (!result.isSolved()) {
+        ErrorLog.log(result.toString());
+        throw noSolution();
+      }
+      start = System.nanoTime();
+      PrettyPrinter.print(result.getSecondLayer(), Channels.newChannel(System.out));
+      System.out.flush();
+      metrics.record(Metrics.Phase.RENDER, start);
+    } catch (IllegalArgumentException | IOException | ArrayIndexOutOfBoundsException i) {
+      throw noSolution();
+    }
+  }
+
+  /**
+   * Flow of the application building several layers on top of each other. Each layer is drawn as
+   * soon as it is built, followed by an empty line. See {@link Brickwork#stackLayers}.
+   *
+   * @param layers total number of layers, including the first one
+   */
+  public void runLayers(int layers) {
+    try {
+      printInstructions();
+      readFirstLayer();
+      WritableByteChannel out = Channels.newChannel(System.out);
+      brickwork.stackLayers(
+          layers,
+          (course, layer) -> {
+            PrettyPrinter.print(layer, out);
+            System.out.println();
+            System.out.flush();
+          });
+    } catch (IllegalArgumentException | IOException | ArrayIndexOutOfBoundsException i) {
+      throw noSolution();
+    }
+  }
+
+  /**
+   * Streaming flow of the application. The first layer is consumed two rows at a time and each
+   * solved band of the second layer is drawn right away, so memory stays proportional to the
+   * number of columns. See {@link StreamingBrickwork}.
+   */
+  public void runStreaming() {
+    try {
+      printInstructions();
+      readDimensions();
+      StreamingBrickwork streamingBrickwork = StreamingBrickwork.init(rows, cols);
+      rowBuffer = new int[cols];
+      PrettyPrinter printer =
+          PrettyPrinter.to(rows, cols, (long) rows * cols / 2, Channels.newChannel(System.out));
+      for (int row = 0; row < rows; row++) {
+        streamingBrickwork.addRow(readRow(), printer);
+        System.out.flush();
+      }
+      checkNoMoreRows();
+      streamingBrickwork.finish();
     } catch (IllegalArgumentException | IOException | ArrayIndexOutOfBoundsException i) {
-      System.err.println("-1: No solution exists");
-      throw new NoSolutionException();
+      throw noSolution();
+    }
+  }
+
+  /**
+   * Binary flow of the application. Reads the first layer from a file in the binary format and
+   * writes the second layer to another one, see {@link BinaryLayerReader}.
+   *
+   * @param input first layer in the binary format
+   * @param output destination of the second layer
+   */
+  public static void runBinary(Path input, Path output) {
+    try {
+      long start = System.nanoTime();
+      BinaryLayerReader source = BinaryLayerReader.open(input);
+      Brickwork brickwork = Brickwork.init(source.getRows(), source.getCols());
+      brickwork.setFirstLayer(source);
+      Metrics metrics = Metrics.get();
+      metrics.record(Metrics.Phase.PARSE, start);
+      SolveResult result = brickwork.solve();
+      if (!result.isSolved()) {
+        ErrorLog.log(result.toString());
+        throw noSolution();
+      }
+      start = System.nanoTime();
+      BinaryLayerWriter.write(result.getSecondLayer(), output);
+      metrics.record(Metrics.Phase.RENDER, start);
+    } catch (IOException e) {
+      ErrorLog.log(e.getMessage());
+      throw noSolution();
+    } catch (IllegalArgumentException i) {
+      throw noSolution();
+    }
+  }
+
+  private static NoSolutionException noSolution() {
+    System.err.println("-1: No solution exists");
+    return new NoSolutionException();
+  }
+
+  /**
+   * Reads the dimensions and the first layer, without validating the bricks.
+   *
+   * @return brickwork holding the first layer
+   * @throws IOException
+   * @throws IllegalArgumentException if the dimensions or the number of rows and cols are invalid
+   */
+  Brickwork readFirstLayer() throws IOException, IllegalArgumentException {
+    readDimensions();
+    brickwork = Brickwork.init(rows, cols);
+    rowBuffer = new int[cols];
+    readInput();
+    return brickwork;
+  }
+
+  private void printInstructions() {
+    System.out.println("Enter layers' dimension (NxM) separated by space on the first line and");
+    System.out.println("then on each N row enter M columns separated by space.");
+  }
+
+  /**
+   * Reads the dimensions from the first line.
+   *
+   * @throws IOException
+   * @throws IllegalArgumentException if the line does not start with two integers
+   */
+  private void readDimensions() throws IOException, IllegalArgumentException {
+    int[] dimensions = new int[2];
+    if (reader.readInts(dimensions) < 2) {
+      ErrorLog.log("Invalid dimensions");
+      throw new IllegalArgumentException();
     }
+    rows = dimensions[0];
+    cols = dimensions[1];
   }
 
   public String toStringSecondLayer() {
@@ -54,39 +194,43 @@ public class Manager {
   }
 
   /**
-   * Reads the first layer form the console and validates if the input number of rows and cols
-   * matches the one given on the first line.
+   * Reads the first layer form the console straight into the brickwork and validates if the
+   * input number of rows and cols matches the one given on the first line.
    *
    * @throws IOException
    * @throws IllegalArgumentException
    */
-  private int[][] readInput() throws IOException, IllegalArgumentException {
-    int[][] input = new int[rows][];
-    int row = 0;
-    while (true) {
-      int[] numbers =
-          Arrays.stream(reader.readLine().split("\\s+"))
-              .map(String::trim)
-              .filter(s -> !s.isEmpty())
-              .mapToInt(Integer::parseInt)
-              .toArray();
-
-      if (row == rows) {
-        if (numbers.length > 0) {
-          System.err.println("Invalid number of rows");
-          throw new IllegalArgumentException();
-        }
-        break;
-      }
+  private void readInput() throws IOException, IllegalArgumentException {
+    for (int row = 0; row < rows; row++) {
+      brickwork.setFirstLayerRow(row, readRow());
+    }
+    checkNoMoreRows();
+  }
 
-      if (numbers.length != cols) {
-        System.err.println("Invalid number of cols");
-        throw new IllegalArgumentException();
-      }
-      input[row] = numbers;
-      ++row;
+  /**
+   * Reads the next row of the first layer into the reusable row buffer.
+   *
+   * @throws IOException
+   * @throws IllegalArgumentException if the number of cols does not match the stated one
+   */
+  private int[] readRow() throws IOException, IllegalArgumentException {
+    if (reader.readInts(rowBuffer) != cols) {
+      ErrorLog.log("Invalid number of cols");
+      throw new IllegalArgumentException();
     }
+    return rowBuffer;
+  }
 
-    return input;
+  /**
+   * Makes sure the line after the last row is empty.
+   *
+   * @throws IOException
+   * @throws IllegalArgumentException if there are more rows than stated
+   */
+  private void checkNoMoreRows() throws IOException, IllegalArgumentException {
+    if (reader.readInts(rowBuffer) > 0) {
+      ErrorLog.log("Invalid number of rows");
+      throw new IllegalArgumentException();
+    }
   }
 }
@@ -0,0 +1,111 @@
+package com.github.vasatanasov.brickwork.core;
+
+import com.github.vasatanasov.brickwork.models.Layer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the {@link GreedySolver} on several cores. The layer is split into horizontal bands at rows
+ * no first-layer brick crosses, and the bands are solved concurrently with {@link
+ * GreedySolver#solveBand}. Brick ids of each band start right after the ids of the bands above,
+ * so when all bands are completed the second layer is identical to the one the sequential greedy
+ * run produces.
+ */
+public class ParallelSolver implements SecondLayerSolver {
+
+  // Bands per worker, so that a few slow bands do not keep the other workers idle.
+  private static final int BANDS_PER_THREAD = 4;
+
+  private final ForkJoinPool pool;
+
+  /** @param pool pool the bands are solved on */
+  public ParallelSolver(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Solves the whole layer as a single band if the storage of the second layer does not support
+   * concurrent writes.
+   *
+   * @return false if any band could not be completed on its own. The layers are left partially
+   *     solved then.
+   */
+  @Override
+  public boolean solve(Layer firstLayer, Layer secondLayer) {
+    int bandCount =
+        secondLayer.supportsConcurrentWrites() ? pool.getParallelism() * BANDS_PER_THREAD : 1;
+    int[] boundaries = findBoundaries(firstLayer, bandCount);
+    int cols = firstLayer.getCols();
+    List<Callable<Boolean>> bands = new ArrayList<>(boundaries.length - 1);
+    for (int band = 0; band < boundaries.length - 1; band++) {
+      int fromRow = boundaries[band];
+      int toRow = boundaries[band + 1];
+      int firstBrickId = (int) ((long) fromRow * cols / 2) + 1;
+      bands.add(
+          () -> GreedySolver.solveBand(firstLayer, secondLayer, fromRow, toRow, firstBrickId));
+    }
+
+    boolean complete = true;
+    for (Future<Boolean> band : pool.invokeAll(bands)) {
+      complete &= join(band);
+    }
+    if (complete) {
+      secondLayer.setTotalBricks((int) ((long) firstLayer.getRows() * cols / 2));
+    }
+    return complete;
+  }
+
+  /**
+   * Picks band boundaries close to evenly spaced rows. Only even rows are taken, so every band
+   * holds an even number of rows, at least two, and may be covered on its own.
+   *
+   * @return rows starting the bands, followed by the number of rows
+   */
+  private static int[] findBoundaries(Layer layer, int bands) {
+    int rows = layer.getRows();
+    List<Integer> boundaries = new ArrayList<>();
+    boundaries.add(0);
+    int row = 2;
+    for (int band = 1; band < bands; band++) {
+      row = Math.max(row, (int) ((long) rows * band / bands + 1) & ~1);
+      while (row < rows && !isBoundary(layer, row)) {
+        row += 2;
+      }
+      if (row >= rows) {
+        break;
+      }
+      boundaries.add(row);
+      row += 2;
+    }
+    boundaries.add(rows);
+    return boundaries.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  // True if no brick crosses between the given row and the one above it.
+  private static boolean isBoundary(Layer layer, int row) {
+    int cols = layer.getCols();
+    long index = (long) row * cols;
+    for (int col = 0; col < cols; col++, index++) {
+      if (layer.getValue(index) == layer.getValue(index - cols)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean join(Future<Boolean> band) {
+    try {
+      return band.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+}
@@ -0,0 +1,33 @@
+package com.github.vasatanasov.brickwork.core;
+
+import com.github.vasatanasov.brickwork.models.Layer;
+
+/**
+ * Strategy for covering an empty second layer with bricks so that no brick lies exactly on top of a
+ * brick from the first layer.
+ */
+public interface SecondLayerSolver {
+
+  /**
+   * Fills the second layer.
+   *
+   * @param firstLayer validated first layer
+   * @param secondLayer empty layer with the same dimensions
+   * @return true if the second layer was completed else false
+   */
+  boolean solve(Layer firstLayer, Layer secondLayer);
+
+  /**
+   * Fills the second layer until it is complete or the deadline passes. Solvers that do not check
+   * the deadline just run to the end.
+   *
+   * @param firstLayer validated first layer
+   * @param secondLayer empty layer with the same dimensions
+   * @param deadline checked every {@link Deadline#CHECK_INTERVAL} placed bricks
+   * @return true if the second layer was completed else false, the bricks placed before the
+   *     deadline passed are left in the layer
+   */
+  default boolean solve(Layer firstLayer, Layer secondLayer, Deadline deadline) {
+    return solve(firstLayer, secondLayer);
+  }
+}
@@ -0,0 +1,81 @@
+package com.github.vasatanasov.brickwork.core;
+
+import com.github.vasatanasov.brickwork.error.ErrorLog;
+import com.github.vasatanasov.brickwork.error.Failure;
+import com.github.vasatanasov.brickwork.models.Layer;
+
+/**
+ * Verifies a second layer against its first layer: every cell is covered, every brick spans
+ * exactly two cells, every brick id is used once and no brick lies exactly on top of a brick of
+ * the first layer. Both layers are read once, cell by cell, and the only memory taken is a bitset
+ * of the brick ids, so the check is cheap enough to run on every solved wall.
+ */
+public class SecondLayerVerifier {
+
+  private SecondLayerVerifier() {}
+
+  /**
+   * @param firstLayer first layer
+   * @param secondLayer second layer of the same dimensions
+   * @return the second layer, or the first failure found along with its cell in row-major order
+   * @throws IllegalArgumentException if the dimensions differ
+   */
+  public static SolveResult verify(Layer firstLayer, Layer secondLayer) {
+    SolveResult result = new SolveResult();
+    BrickIdSet ids = new BrickIdSet((long) secondLayer.getRows() * secondLayer.getCols() / 2);
+    if (check(firstLayer, secondLayer, result, ids)) {
+      result.succeed(secondLayer);
+    }
+    return result;
+  }
+
+  /**
+   * Variant of {@link #verify} reporting through the result and recording the ids in a set kept
+   * by the caller.
+   *
+   * @param firstLayer
+   * @param secondLayer
+   * @param result receives the failure, left untouched if the layer is valid
+   * @param ids empty set sized for the layer
+   * @return true if the second layer is valid
+   */
+  static boolean check(Layer firstLayer, Layer secondLayer, SolveResult result, BrickIdSet ids) {
+    int rows = secondLayer.getRows();
+    int cols = secondLayer.getCols();
+    if (firstLayer.getRows() != rows || firstLayer.getCols() != cols) {
+      ErrorLog.log("Layer dimensions do not match");
+      throw new IllegalArgumentException();
+    }
+    long index = 0;
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < cols; col++, index++) {
+        int value = secondLayer.getValue(index);
+        if (value <= 0) {
+          return result.fail(value == 0 ? Failure.UNCOVERED_CELL : Failure.INVALID_NUMBER, row, col);
+        }
+        boolean left = col > 0 && secondLayer.getValue(index - 1) == value;
+        boolean up = row > 0 && secondLayer.getValue(index - cols) == value;
+        boolean right = col < cols - 1 && secondLayer.getValue(index + 1) == value;
+        boolean down = row < rows - 1 && secondLayer.getValue(index + cols) == value;
+        Failure failure =
+            FirstLayerValidator.neighboursFailure(
+                (left ? 1 : 0) + (up ? 1 : 0) + (right ? 1 : 0) + (down ? 1 : 0));
+        if (failure != null) {
+          return result.fail(failure, row, col);
+        }
+        if (!right && !down) {
+          continue;
+        }
+        // First half of the brick, the other one lies right or below.
+        if (!ids.add(value)) {
+          return result.fail(Failure.DUPLICATE_ID, row, col);
+        }
+        long other = right ? index + 1 : index + cols;
+        if (firstLayer.getValue(index) == firstLayer.getValue(other)) {
+          return result.fail(Failure.BRICK_ON_BRICK, row, col);
+        }
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,235 @@
+package com.github.vasatanasov.brickwork.core;
+
+import com.github.vasatanasov.brickwork.models.Layer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Second layers of the first layers solved so far, least recently used first out. The size of the
+ * cache is bounded by the total number of cells of the second layers it holds.
+ *
+ * <p>A first layer is looked up by its shape: every cell records on which side its other half
+ * lies. The brick ids are only labels, so layouts differing just in their numbering share the same
+ * entry. The shape takes two bits per cell and is hashed once, when the key is built.
+ *
+ * <p>The cache may be saved to a file and loaded back, so the walls solved most recently survive a
+ * restart. All methods are thread-safe.
+ */
+public class SolutionCache {
+
+  private static final int MAGIC = 0x42524B43;
+  private static final int RIGHT = 0, DOWN = 1, LEFT = 2, UP = 3;
+  private static final int CELLS_PER_WORD = Long.SIZE / 2;
+
+  private final long maxCells;
+  private final LinkedHashMap<Key, int[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long cells;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /** @param maxCells total number of second layer cells the cache may hold */
+  public SolutionCache(long maxCells) {
+    this.maxCells = maxCells;
+  }
+
+  /**
+   * Builds the key of a valid first layer.
+   *
+   * @param firstLayer layer validated by {@link FirstLayerValidator}
+   * @return key of the layer's shape
+   */
+  static Key key(Layer firstLayer) {
+    int rows = firstLayer.getRows();
+    int cols = firstLayer.getCols();
+    long total = (long) rows * cols;
+    long[] shape = new long[(int) ((total + CELLS_PER_WORD - 1) / CELLS_PER_WORD)];
+    long index = 0;
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < cols; col++, index++) {
+        int value = firstLayer.getValue(index);
+        long side;
+        if (col + 1 < cols && firstLayer.getValue(index + 1) == value) {
+          side = RIGHT;
+        } else if (row + 1 < rows && firstLayer.getValue(index + cols) == value) {
+          side = DOWN;
+        } else if (col > 0 && firstLayer.getValue(index - 1) == value) {
+          side = LEFT;
+        } else {
+          side = UP;
+        }
+        shape[(int) (index / CELLS_PER_WORD)] |= side << (2 * (index % CELLS_PER_WORD));
+      }
+    }
+    return new Key(rows, cols, shape);
+  }
+
+  /**
+   * Copies the cached second layer of the key, if any.
+   *
+   * @param key key of the first layer
+   * @param secondLayer destination of the cached solution
+   * @return true on a hit
+   */
+  synchronized boolean get(Key key, Layer secondLayer) {
+    int[] solution = entries.get(key);
+    if (solution == null) {
+      misses++;
+      return false;
+    }
+    hits++;
+    for (int index = 0; index < solution.length; index++) {
+      secondLayer.setValue(index, solution[index]);
+    }
+    secondLayer.setTotalBricks(solution.length / 2);
+    return true;
+  }
+
+  /**
+   * Caches the complete second layer of the key, evicting the least recently used entries to stay
+   * within the size. A layer larger than the whole cache is not cached.
+   *
+   * @param key key of the first layer
+   * @param secondLayer complete second layer
+   */
+  synchronized void put(Key key, Layer secondLayer) {
+    long size = (long) key.rows * key.cols;
+    if (size > maxCells) {
+      return;
+    }
+    int[] solution = new int[(int) size];
+    for (int index = 0; index < solution.length; index++) {
+      solution[index] = secondLayer.getValue(index);
+    }
+    add(key, solution);
+  }
+
+  private void add(Key key, int[] solution) {
+    int[] previous = entries.put(key, solution);
+    if (previous != null) {
+      cells -= previous.length;
+    }
+    cells += solution.length;
+    Iterator<int[]> eldest = entries.values().iterator();
+    while (cells > maxCells) {
+      cells -= eldest.next().length;
+      eldest.remove();
+      evictions++;
+    }
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Writes the entries to the file, least recently used first.
+   *
+   * @param file
+   * @throws IOException if the file cannot be written
+   */
+  public synchronized void save(Path file) throws IOException {
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(entries.size());
+      for (Map.Entry<Key, int[]> entry : entries.entrySet()) {
+        Key key = entry.getKey();
+        out.writeInt(key.rows);
+        out.writeInt(key.cols);
+        for (long word : key.shape) {
+          out.writeLong(word);
+        }
+        for (int value : entry.getValue()) {
+          out.writeInt(value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds the entries saved by {@link #save} to the cache, as the most recently used ones.
+   *
+   * @param file
+   * @throws IOException if the file cannot be read or is not a saved cache
+   */
+  public synchronized void load(Path file) throws IOException {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not a solution cache: " + file);
+      }
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        int rows = in.readInt();
+        int cols = in.readInt();
+        long total = (long) rows * cols;
+        long[] shape = new long[(int) ((total + CELLS_PER_WORD - 1) / CELLS_PER_WORD)];
+        for (int word = 0; word < shape.length; word++) {
+          shape[word] = in.readLong();
+        }
+        int[] solution = new int[(int) total];
+        for (int index = 0; index < solution.length; index++) {
+          solution[index] = in.readInt();
+        }
+        if (total <= maxCells) {
+          add(new Key(rows, cols, shape), solution);
+        }
+      }
+    }
+  }
+
+  /** Shape of a first layer, independent of the brick ids. */
+  static final class Key {
+    private final int rows, cols;
+    private final long[] shape;
+    private final int hash;
+
+    private Key(int rows, int cols, long[] shape) {
+      this.rows = rows;
+      this.cols = cols;
+      this.shape = shape;
+      this.hash = 31 * (31 * rows + cols) + Arrays.hashCode(shape);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return hash == key.hash && rows == key.rows && cols == key.cols
+          && Arrays.equals(shape, key.shape);
+    }
+  }
+}
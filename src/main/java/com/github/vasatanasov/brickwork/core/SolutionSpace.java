@@ -0,0 +1,385 @@
+package com.github.vasatanasov.brickwork.core;
+
+import com.github.vasatanasov.brickwork.error.ErrorLog;
+import com.github.vasatanasov.brickwork.models.Layer;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * All second layers of a first layer, explored with broken-profile dynamic programming. The wall
+ * is walked cell by cell along its longer side, in lines as wide as its shorter side. The profile
+ * is a bit mask over the width telling which cells of the current line, or of the next one for
+ * the cells already visited, are covered by a brick laid earlier. That makes every operation
+ * O(rows * cols * 2^min(rows, cols)), so it is meant for narrow walls.
+ *
+ * <p>Counting keeps only two rows of the table. Enumerating and picking the cheapest layer keep a
+ * bit per cell and profile as well, which bounds the size of the walls they accept.
+ *
+ * <p>The bricks of the layers built here are numbered in row-major order of their first cells.
+ */
+public class SolutionSpace implements Iterable<Layer> {
+
+  /** Cost of a single brick of the second layer, see {@link #cheapest(BrickCost)}. */
+  @FunctionalInterface
+  public interface BrickCost {
+
+    /**
+     * @param row row of the top or left half
+     * @param col col of the top or left half
+     * @param vertical true if the other half lies below, false if it lies to the right
+     * @return cost of the brick
+     */
+    long of(int row, int col, boolean vertical);
+
+    /** @return cost counting the vertical bricks */
+    static BrickCost verticalBricks() {
+      return (row, col, vertical) -> vertical ? 1 : 0;
+    }
+  }
+
+  private static final int MAX_WIDTH = 20;
+  private static final long MAX_TABLE_BITS = 1L << 30;
+  private static final long UNREACHABLE = Long.MAX_VALUE;
+
+  private final int rows, cols;
+  // Lines run along the longer side of the wall, so the profile spans the shorter one.
+  private final boolean transposed;
+  private final int lines, width, steps;
+  // Step i may not take a brick to the next line, respectively to the next cell of its line,
+  // because that is the other half of the same first-layer brick or there is no such cell.
+  private final boolean[] alongForbidden;
+  private final boolean[] acrossForbidden;
+
+  private SolutionSpace(Layer firstLayer) {
+    rows = firstLayer.getRows();
+    cols = firstLayer.getCols();
+    transposed = cols > rows;
+    lines = transposed ? cols : rows;
+    width = transposed ? rows : cols;
+    steps = lines * width;
+    alongForbidden = new boolean[steps];
+    acrossForbidden = new boolean[steps];
+    for (int line = 0; line < lines; line++) {
+      for (int position = 0; position < width; position++) {
+        int step = line * width + position;
+        int value = value(firstLayer, line, position);
+        alongForbidden[step] = line == lines - 1 || value(firstLayer, line + 1, position) == value;
+        acrossForbidden[step] =
+            position == width - 1 || value(firstLayer, line, position + 1) == value;
+      }
+    }
+  }
+
+  /**
+   * @param firstLayer valid first layer
+   * @return second layers of the first layer
+   * @throws IllegalArgumentException if the shorter side of the layer is too long
+   */
+  public static SolutionSpace of(Layer firstLayer) {
+    if (Math.min(firstLayer.getRows(), firstLayer.getCols()) > MAX_WIDTH) {
+      ErrorLog.log("Layer is too wide, the shorter side may have at most " + MAX_WIDTH + " cells");
+      throw new IllegalArgumentException();
+    }
+    return new SolutionSpace(firstLayer);
+  }
+
+  /** @return the number of second layers */
+  public BigInteger count() {
+    BigInteger[] current = new BigInteger[1 << width];
+    BigInteger[] next = new BigInteger[1 << width];
+    Arrays.fill(current, BigInteger.ZERO);
+    current[0] = BigInteger.ONE;
+    for (int step = 0; step < steps; step++) {
+      Arrays.fill(next, BigInteger.ZERO);
+      int bit = 1 << (step % width);
+      for (int mask = 0; mask < current.length; mask++) {
+        BigInteger ways = current[mask];
+        if (ways.signum() == 0) {
+          continue;
+        }
+        if ((mask & bit) != 0) {
+          next[mask & ~bit] = next[mask & ~bit].add(ways);
+          continue;
+        }
+        if (!alongForbidden[step]) {
+          next[mask | bit] = next[mask | bit].add(ways);
+        }
+        if (!acrossForbidden[step] && (mask & bit << 1) == 0) {
+          next[mask | bit << 1] = next[mask | bit << 1].add(ways);
+        }
+      }
+      BigInteger[] swap = current;
+      current = next;
+      next = swap;
+    }
+    return current[0];
+  }
+
+  /**
+   * @param modulus positive modulus below 2^62
+   * @return the number of second layers modulo the modulus
+   */
+  public long count(long modulus) {
+    long[] current = new long[1 << width];
+    long[] next = new long[1 << width];
+    current[0] = 1 % modulus;
+    for (int step = 0; step < steps; step++) {
+      Arrays.fill(next, 0);
+      int bit = 1 << (step % width);
+      for (int mask = 0; mask < current.length; mask++) {
+        long ways = current[mask];
+        if (ways == 0) {
+          continue;
+        }
+        if ((mask & bit) != 0) {
+          next[mask & ~bit] = (next[mask & ~bit] + ways) % modulus;
+          continue;
+        }
+        if (!alongForbidden[step]) {
+          next[mask | bit] = (next[mask | bit] + ways) % modulus;
+        }
+        if (!acrossForbidden[step] && (mask & bit << 1) == 0) {
+          next[mask | bit << 1] = (next[mask | bit << 1] + ways) % modulus;
+        }
+      }
+      long[] swap = current;
+      current = next;
+      next = swap;
+    }
+    return current[0];
+  }
+
+  /**
+   * Finds a second layer of the lowest total cost.
+   *
+   * @param cost cost of every brick
+   * @return the cheapest second layer
+   * @throws IllegalArgumentException if the wall is too large to keep the choices of every step
+   */
+  public Layer cheapest(BrickCost cost) {
+    long[] choices = newTable();
+    long[] current = new long[1 << width];
+    long[] next = new long[1 << width];
+    // Walks backwards: next holds the cheapest completions after the step, current before it.
+    Arrays.fill(next, UNREACHABLE);
+    next[0] = 0;
+    for (int step = steps - 1; step >= 0; step--) {
+      int line = step / width;
+      int position = step % width;
+      int bit = 1 << position;
+      long alongCost = alongForbidden[step] ? 0 : brickCost(cost, line, position, true);
+      long acrossCost = acrossForbidden[step] ? 0 : brickCost(cost, line, position, false);
+      for (int mask = 0; mask < current.length; mask++) {
+        if ((mask & bit) != 0) {
+          current[mask] = next[mask & ~bit];
+          continue;
+        }
+        long along = UNREACHABLE;
+        if (!alongForbidden[step] && next[mask | bit] != UNREACHABLE) {
+          along = next[mask | bit] + alongCost;
+        }
+        long across = UNREACHABLE;
+        if (!acrossForbidden[step]
+            && (mask & bit << 1) == 0
+            && next[mask | bit << 1] != UNREACHABLE) {
+          across = next[mask | bit << 1] + acrossCost;
+        }
+        current[mask] = Math.min(along, across);
+        if (across < along) {
+          setBit(choices, (long) step << width | mask);
+        }
+      }
+      long[] swap = current;
+      current = next;
+      next = swap;
+    }
+    if (next[0] == UNREACHABLE) {
+      ErrorLog.log("Could not find solution");
+      throw new IllegalArgumentException();
+    }
+
+    int[] halves = new int[steps];
+    int mask = 0;
+    for (int step = 0; step < steps; step++) {
+      int bit = 1 << (step % width);
+      if ((mask & bit) != 0) {
+        mask &= ~bit;
+      } else if (isBitSet(choices, (long) step << width | mask)) {
+        halves[step] = step + 1;
+        mask |= bit << 1;
+      } else {
+        halves[step] = step + width;
+        mask |= bit;
+      }
+    }
+    return toLayer(halves);
+  }
+
+  /**
+   * Lists the second layers lazily, one search path per layer. Dead ends are cut off up front by
+   * a backward pass, so every layer costs O(rows * cols) on top of it.
+   *
+   * @throws IllegalArgumentException if the wall is too large to keep the reachable profiles of
+   *     every step
+   */
+  @Override
+  public Iterator<Layer> iterator() {
+    long[] alive = newTable();
+    boolean[] current = new boolean[1 << width];
+    boolean[] next = new boolean[1 << width];
+    next[0] = true;
+    for (int step = steps - 1; step >= 0; step--) {
+      int bit = 1 << (step % width);
+      for (int mask = 0; mask < current.length; mask++) {
+        if ((mask & bit) != 0) {
+          current[mask] = next[mask & ~bit];
+        } else {
+          current[mask] =
+              !alongForbidden[step] && next[mask | bit]
+                  || !acrossForbidden[step] && (mask & bit << 1) == 0 && next[mask | bit << 1];
+        }
+        if (current[mask]) {
+          setBit(alive, (long) step << width | mask);
+        }
+      }
+      boolean[] swap = current;
+      current = next;
+      next = swap;
+    }
+    return new Enumeration(alive);
+  }
+
+  /** Depth-first walk over the live profiles, resumed where the last layer was found. */
+  private class Enumeration implements Iterator<Layer> {
+    private static final int NONE = 0, ALONG = 1, ACROSS = 2;
+
+    private final long[] alive;
+    private final int[] masks = new int[steps + 1];
+    private final int[] moves = new int[steps];
+    private int depth;
+    private boolean pending;
+
+    private Enumeration(long[] alive) {
+      this.alive = alive;
+      pending = isBitSet(alive, 0) && descend();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return pending;
+    }
+
+    @Override
+    public Layer next() {
+      if (!pending) {
+        throw new NoSuchElementException();
+      }
+      int[] halves = new int[steps];
+      for (int step = 0; step < steps; step++) {
+        if (moves[step] == ALONG) {
+          halves[step] = step + width;
+        } else if (moves[step] == ACROSS) {
+          halves[step] = step + 1;
+        }
+      }
+      pending = advance();
+      return toLayer(halves);
+    }
+
+    // Follows the first live move of every step from the current depth down to the last step.
+    private boolean descend() {
+      while (depth < steps) {
+        int mask = masks[depth];
+        int bit = 1 << (depth % width);
+        if ((mask & bit) != 0) {
+          moves[depth] = NONE;
+          masks[depth + 1] = mask & ~bit;
+        } else if (isLive(ALONG)) {
+          moves[depth] = ALONG;
+          masks[depth + 1] = mask | bit;
+        } else {
+          moves[depth] = ACROSS;
+          masks[depth + 1] = mask | bit << 1;
+        }
+        depth++;
+      }
+      return true;
+    }
+
+    // Backs up to the deepest step whose move may still change from along to across.
+    private boolean advance() {
+      while (depth > 0) {
+        depth--;
+        if (moves[depth] == ALONG && isLive(ACROSS)) {
+          moves[depth] = ACROSS;
+          masks[depth + 1] = masks[depth] | 1 << (depth % width + 1);
+          depth++;
+          return descend();
+        }
+      }
+      return false;
+    }
+
+    private boolean isLive(int move) {
+      int mask = masks[depth];
+      int bit = 1 << (depth % width);
+      if (move == ALONG) {
+        return !alongForbidden[depth] && isAlive(depth + 1, mask | bit);
+      }
+      return !acrossForbidden[depth]
+          && (mask & bit << 1) == 0
+          && isAlive(depth + 1, mask | bit << 1);
+    }
+
+    private boolean isAlive(int step, int mask) {
+      return step == steps ? mask == 0 : isBitSet(alive, (long) step << width | mask);
+    }
+  }
+
+  private long[] newTable() {
+    long bits = (long) steps << width;
+    if (bits > MAX_TABLE_BITS) {
+      ErrorLog.log("Layer is too large to list its second layers");
+      throw new IllegalArgumentException();
+    }
+    return new long[(int) ((bits + Long.SIZE - 1) >>> 6)];
+  }
+
+  private long brickCost(BrickCost cost, int line, int position, boolean along) {
+    return transposed ? cost.of(position, line, !along) : cost.of(line, position, along);
+  }
+
+  private int value(Layer layer, int line, int position) {
+    return transposed ? layer.getValue(position, line) : layer.getValue(line, position);
+  }
+
+  // Builds the layer from the step holding the other half of the brick starting at every step.
+  private Layer toLayer(int[] halves) {
+    Layer layer = Layer.of(rows, cols);
+    int[] ids = new int[steps];
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < cols; col++) {
+        int step = transposed ? col * width + row : row * width + col;
+        if (ids[step] == 0) {
+          int id = layer.getTotalBricks() + 1;
+          layer.setTotalBricks(id);
+          ids[step] = id;
+          ids[halves[step]] = id;
+        }
+        layer.setValue(row, col, ids[step]);
+      }
+    }
+    return layer;
+  }
+
+  private static boolean isBitSet(long[] bits, long index) {
+    return (bits[(int) (index >>> 6)] & (1L << index)) != 0;
+  }
+
+  private static void setBit(long[] bits, long index) {
+    bits[(int) (index >>> 6)] |= 1L << index;
+  }
+}
@@ -0,0 +1,103 @@
+package com.github.vasatanasov.brickwork.core;
+
+import com.github.vasatanasov.brickwork.error.Failure;
+import com.github.vasatanasov.brickwork.models.Layer;
+
+/**
+ * Outcome of {@link Brickwork#solve()}: either the second layer, or the reason there is none along
+ * with the cell it was found at. Every {@link Brickwork} reuses a single instance, so reporting a
+ * failure allocates nothing; the result is only valid until the next call.
+ *
+ * <p>When a {@link Deadline} passes first, the failure is {@link Failure#DEADLINE_EXCEEDED} and the
+ * result holds the partial second layer, with the first uncovered cell as the offending one.
+ */
+public class SolveResult {
+
+  private static final int NO_CELL = -1;
+
+  private Layer secondLayer;
+  private Failure failure;
+  private int row = NO_CELL;
+  private int col = NO_CELL;
+
+  public boolean isSolved() {
+    return failure == null && secondLayer != null;
+  }
+
+  /** @return the second layer, the partial one if the deadline passed, or null if there is none */
+  public Layer getSecondLayer() {
+    return secondLayer;
+  }
+
+  /** @return the reason there is no second layer or null if solved */
+  public Failure getFailure() {
+    return failure;
+  }
+
+  /** @return row of the offending cell or -1 if the failure is not bound to a cell */
+  public int getRow() {
+    return row;
+  }
+
+  /** @return col of the offending cell or -1 if the failure is not bound to a cell */
+  public int getCol() {
+    return col;
+  }
+
+  /** @return number of bricks in the second layer, placed before the deadline if it passed */
+  public int getPlacedBricks() {
+    return secondLayer == null ? 0 : secondLayer.getTotalBricks();
+  }
+
+  /** @return number of cells the second layer does not cover, or 0 if there is no layer */
+  public long getUncoveredCells() {
+    if (secondLayer == null) {
+      return 0;
+    }
+    return (long) secondLayer.getRows() * secondLayer.getCols() - 2L * getPlacedBricks();
+  }
+
+  SolveResult succeed(Layer secondLayer) {
+    this.secondLayer = secondLayer;
+    this.failure = null;
+    this.row = NO_CELL;
+    this.col = NO_CELL;
+    return this;
+  }
+
+  /** @return false, so a failing check may return the call */
+  boolean fail(Failure failure, int row, int col) {
+    this.secondLayer = null;
+    this.failure = failure;
+    this.row = row;
+    this.col = col;
+    return false;
+  }
+
+  boolean fail(Failure failure) {
+    return fail(failure, NO_CELL, NO_CELL);
+  }
+
+  SolveResult expire(Layer partialLayer, int row, int col) {
+    this.secondLayer = partialLayer;
+    this.failure = Failure.DEADLINE_EXCEEDED;
+    this.row = row;
+    this.col = col;
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    if (isSolved()) {
+      return secondLayer.toString();
+    }
+    if (failure == Failure.DEADLINE_EXCEEDED) {
+      return failure.getReason() + " with " + getUncoveredCells() + " cells uncovered from row "
+          + row + ", col " + col;
+    }
+    if (row == NO_CELL) {
+      return failure.getReason();
+    }
+    return failure.getReason() + " at row " + row + ", col " + col;
+  }
+}
@@ -0,0 +1,134 @@
+package com.github.vasatanasov.brickwork.core;
+
+import com.github.vasatanasov.brickwork.error.ErrorLog;
+import com.github.vasatanasov.brickwork.io.PrettyPrinter;
+
+import java.io.IOException;
+
+/**
+ * Builds the second layer while the first layer is still being read. Rows are consumed in pairs
+ * and every such band is solved on its own, using the same 2x2 block rule as {@link BlockSolver},
+ * and written out right away. Only a handful of rows are kept in memory regardless of the number
+ * of rows.
+ *
+ * <p>The greedy solver is not used here, as it may lay bricks across two bands, so the second
+ * layer may differ from the one {@link Manager#run()} prints for the same wall. Also, since the
+ * output of a band is written before the rest of the input is read, an invalid row only surfaces
+ * after the preceding bands have been written.
+ */
+public class StreamingBrickwork {
+
+  private final int rows, cols;
+  private final FirstLayerValidator validator;
+  private final int[] top;
+  private final int[] secondTop;
+  private final int[] secondBottom;
+  private int rowsRead;
+  private int nextBrick = 1;
+
+  private StreamingBrickwork(int rows, int cols) {
+    if (rows < 2 || rows % 2 != 0 || cols < 2 || cols % 2 != 0) {
+      ErrorLog.log("Rows and columns must be positive even numbers");
+      throw new IllegalArgumentException();
+    }
+    this.rows = rows;
+    this.cols = cols;
+    validator = new FirstLayerValidator(cols);
+    top = new int[cols];
+    secondTop = new int[cols];
+    secondBottom = new int[cols];
+  }
+
+  /**
+   * Static factory method for instantiating the class
+   *
+   * @param rows
+   * @param cols
+   * @return
+   */
+  public static StreamingBrickwork init(int rows, int cols) {
+    return new StreamingBrickwork(rows, cols);
+  }
+
+  /**
+   * Adds the next row of the first layer. Every second row completes a band, whose two rows of the
+   * second layer are appended to the output.
+   *
+   * @param row values of the row, at least cols long
+   * @param out destination of the second layer
+   * @throws IllegalArgumentException if the row is invalid or there are more rows than stated
+   * @throws IOException if the output cannot be written
+   */
+  public void addRow(int[] row, Appendable out) throws IOException {
+    if (addRow(row)) {
+      appendRow(secondTop, out);
+      appendRow(secondBottom, out);
+    }
+  }
+
+  /**
+   * Adds the next row of the first layer. Every second row completes a band, whose two rows of the
+   * second layer are drawn by the printer.
+   *
+   * @param row values of the row, at least cols long
+   * @param out printer of the second layer
+   * @throws IllegalArgumentException if the row is invalid or there are more rows than stated
+   * @throws IOException if the output cannot be written
+   */
+  public void addRow(int[] row, PrettyPrinter out) throws IOException {
+    if (addRow(row)) {
+      out.printRow(secondTop);
+      out.printRow(secondBottom);
+    }
+  }
+
+  /** @return true if the row completed a band */
+  private boolean addRow(int[] row) {
+    if (rowsRead == rows) {
+      ErrorLog.log("Invalid number of rows");
+      throw new IllegalArgumentException();
+    }
+    validator.addRow(row);
+    boolean bandComplete = rowsRead % 2 == 1;
+    if (bandComplete) {
+      solveBand(top, row);
+    } else {
+      System.arraycopy(row, 0, top, 0, cols);
+    }
+    rowsRead++;
+    return bandComplete;
+  }
+
+  /**
+   * Completes the validation once all rows are added.
+   *
+   * @throws IllegalArgumentException if there are less rows than stated or the last row is invalid
+   */
+  public void finish() {
+    if (rowsRead != rows) {
+      ErrorLog.log("Invalid number of rows");
+      throw new IllegalArgumentException();
+    }
+    validator.finish();
+  }
+
+  private void solveBand(int[] top, int[] bottom) {
+    for (int col = 0; col < cols; col += 2) {
+      if (top[col] == top[col + 1] || bottom[col] == bottom[col + 1]) {
+        secondTop[col] = secondBottom[col] = nextBrick++;
+        secondTop[col + 1] = secondBottom[col + 1] = nextBrick++;
+      } else {
+        secondTop[col] = secondTop[col + 1] = nextBrick++;
+        secondBottom[col] = secondBottom[col + 1] = nextBrick++;
+      }
+    }
+  }
+
+  private void appendRow(int[] row, Appendable out) throws IOException {
+    for (int col = 0; col < cols; col++) {
+      if (col > 0) out.append(' ');
+      out.append(String.valueOf(row[col]));
+    }
+    out.append(System.lineSeparator());
+  }
+}
@@ -0,0 +1,204 @@
+package com.github.vasatanasov.brickwork.core;
+
+import com.github.vasatanasov.brickwork.error.ErrorLog;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Generates valid first layers of any even size, e.g. for benchmarks and scale tests. The layer is
+ * built from bands of two rows, each band from 2x2 blocks holding either two horizontal or two
+ * vertical bricks, so every generated layer is valid and has a second layer. Bricks are numbered
+ * from 1 in block order.
+ *
+ * <p>The same seed and settings always give the same layer. A layer is generated band by band, so
+ * writing it to a file or straight into a {@link Brickwork} takes memory for two rows only.
+ */
+public final class WallGenerator {
+
+  /** Ways of picking the orientation of the blocks. */
+  public enum Pattern {
+    /** Every block horizontal with the probability given by the horizontal ratio. */
+    RANDOM,
+    /** Stripes of the given height, alternately made of horizontal and vertical blocks. */
+    STRIPES,
+    /** Random, except for the last band on which the greedy solver gets stuck. */
+    ADVERSARIAL
+  }
+
+  /** Receives the generated rows. */
+  @FunctionalInterface
+  private interface RowSink {
+    void accept(int row, int[] values) throws IOException;
+  }
+
+  private final long seed;
+  private Pattern pattern = Pattern.RANDOM;
+  private double horizontalRatio = 0.5;
+  private int stripeHeight = 2;
+
+  private WallGenerator(long seed) {
+    this.seed = seed;
+  }
+
+  /**
+   * Static factory method of the class. Generates random layers with as many horizontal as
+   * vertical blocks, see the setters for other settings.
+   *
+   * @param seed
+   * @return
+   */
+  public static WallGenerator of(long seed) {
+    return new WallGenerator(seed);
+  }
+
+  /**
+   * @param pattern
+   * @return this generator
+   */
+  public WallGenerator pattern(Pattern pattern) {
+    this.pattern = pattern;
+    return this;
+  }
+
+  /**
+   * @param horizontalRatio probability of a random block being horizontal, from 0 to 1
+   * @return this generator
+   * @throws IllegalArgumentException if the ratio is out of range
+   */
+  public WallGenerator horizontalRatio(double horizontalRatio) {
+    if (!(horizontalRatio >= 0 && horizontalRatio <= 1)) {
+      ErrorLog.log("Horizontal ratio must be between 0 and 1");
+      throw new IllegalArgumentException();
+    }
+    this.horizontalRatio = horizontalRatio;
+    return this;
+  }
+
+  /**
+   * @param stripeHeight rows per stripe, a positive even number
+   * @return this generator
+   * @throws IllegalArgumentException if the height is not positive and even
+   */
+  public WallGenerator stripeHeight(int stripeHeight) {
+    if (stripeHeight < 2 || stripeHeight % 2 != 0) {
+      ErrorLog.log("Stripe height must be a positive even number");
+      throw new IllegalArgumentException();
+    }
+    this.stripeHeight = stripeHeight;
+    return this;
+  }
+
+  /**
+   * @param rows
+   * @param cols
+   * @return the layer, row by row
+   * @throws IllegalArgumentException if the dimensions are not positive and even
+   */
+  public int[][] generate(int rows, int cols) {
+    int[][] layer = new int[rows][];
+    try {
+      generate(rows, cols, (row, values) -> layer[row] = values.clone());
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return layer;
+  }
+
+  /**
+   * Sets the first layer of the brickwork, of its dimensions, without validating it.
+   *
+   * @param brickwork
+   */
+  public void generate(Brickwork brickwork) {
+    try {
+      generate(brickwork.getRows(), brickwork.getCols(), brickwork::setFirstLayerRow);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Writes the layer in the text format read by {@link Manager}.
+   *
+   * @param rows
+   * @param cols
+   * @param out
+   * @throws IOException if the output cannot be written
+   * @throws IllegalArgumentException if the dimensions are not positive and even
+   */
+  public void write(int rows, int cols, Appendable out) throws IOException {
+    out.append(Integer.toString(rows)).append(' ').append(Integer.toString(cols));
+    out.append(System.lineSeparator());
+    generate(
+        rows,
+        cols,
+        (row, values) -> {
+          for (int col = 0; col < cols; col++) {
+            if (col > 0) {
+              out.append(' ');
+            }
+            out.append(Integer.toString(values[col]));
+          }
+          out.append(System.lineSeparator());
+        });
+  }
+
+  /**
+   * Writes the layer to the file, see {@link #write(int, int, Appendable)}.
+   *
+   * @param rows
+   * @param cols
+   * @param file
+   * @throws IOException if the file cannot be written
+   */
+  public void write(int rows, int cols, Path file) throws IOException {
+    try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+      write(rows, cols, out);
+    }
+  }
+
+  private void generate(int rows, int cols, RowSink sink) throws IOException {
+    if (rows < 2 || cols < 2 || rows % 2 != 0 || cols % 2 != 0) {
+      ErrorLog.log("Dimensions must be positive and even");
+      throw new IllegalArgumentException();
+    }
+    Random random = new Random(seed);
+    int[] top = new int[cols];
+    int[] bottom = new int[cols];
+    int brick = 1;
+    for (int row = 0; row < rows; row += 2) {
+      for (int col = 0; col < cols; col += 2) {
+        if (isVertical(random, row, rows, col)) {
+          top[col] = bottom[col] = brick++;
+          top[col + 1] = bottom[col + 1] = brick++;
+        } else {
+          top[col] = top[col + 1] = brick++;
+          bottom[col] = bottom[col + 1] = brick++;
+        }
+      }
+      sink.accept(row, top);
+      sink.accept(row + 1, bottom);
+    }
+  }
+
+  private boolean isVertical(Random random, int row, int rows, int col) {
+    switch (pattern) {
+      case STRIPES:
+        return (row / stripeHeight) % 2 != 0;
+      case ADVERSARIAL:
+        // A horizontal block followed by vertical ones shifts the greedy scan by one cell, and the
+        // last vertical brick of the band is left with no partner.
+        if (row == rows - 2) {
+          return col > 0;
+        }
+        return random.nextDouble() >= horizontalRatio;
+      default:
+        return random.nextDouble() >= horizontalRatio;
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package com.github.vasatanasov.brickwork.error;
+
+/**
+ * Diagnostic messages explaining why an input was rejected. They are written to the standard error
+ * only once enabled, since under heavy traffic of invalid walls the synchronized writes to the
+ * console cost more than the validation itself.
+ */
+public final class ErrorLog {
+
+  private static volatile boolean enabled;
+
+  private ErrorLog() {}
+
+  public static void setEnabled(boolean enabled) {
+    ErrorLog.enabled = enabled;
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /** @param message written to the standard error if the log is enabled */
+  public static void log(String message) {
+    if (enabled) {
+      System.err.println(message);
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package com.github.vasatanasov.brickwork.error;
+
+/** Reasons a wall has no second layer. */
+public enum Failure {
+  INVALID_NUMBER("Brick's value must be more than or equal to 1."),
+  MISSING_HALF("Invalid brick. It must have 2 equal halves"),
+  SPAN_TOO_LONG("Invalid brick with span of more than 2 cells"),
+  DUPLICATE_ID("Brick's value must be unique"),
+  NO_SOLUTION("Could not find solution"),
+  UNCOVERED_CELL("Cell is not covered by a brick"),
+  BRICK_ON_BRICK("Brick lies exactly on top of a brick of the first layer"),
+  DEADLINE_EXCEEDED("Deadline passed before the second layer was complete");
+
+  private final String reason;
+
+  Failure(String reason) {
+    this.reason = reason;
+  }
+
+  /** @return human readable reason */
+  public String getReason() {
+    return reason;
+  }
+}
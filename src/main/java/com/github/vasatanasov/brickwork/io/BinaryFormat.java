@@ -0,0 +1,79 @@
+package com.github.vasatanasov.brickwork.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Binary layer format. A 16 byte header is followed by the ids of the cells in row-major order,
+ * each a little-endian unsigned integer of the same width of 1, 2 or 4 bytes:
+ *
+ * <pre>
+ * offset  size  content
+ *      0     4  magic "BRKW"
+ *      4     1  version, 1
+ *      5     1  width of an id in bytes
+ *      6     2  reserved, 0
+ *      8     4  rows
+ *     12     4  cols
+ *     16        ids
+ * </pre>
+ *
+ * The header keeps the ids aligned, so they can be read straight from a mapped file.
+ */
+final class BinaryFormat {
+
+  static final int MAGIC = 'B' | 'R' << 8 | 'K' << 16 | 'W' << 24;
+  static final byte VERSION = 1;
+  static final int HEADER_SIZE = 16;
+  // Bodies are mapped in chunks of whole rows up to this size.
+  private static final long MAX_CHUNK = 1L << 30;
+
+  private BinaryFormat() {}
+
+  /** @return the narrowest width holding the given id */
+  static int widthOf(long maxId) {
+    if (maxId <= 0xFF) {
+      return Byte.BYTES;
+    }
+    return maxId <= 0xFFFF ? Short.BYTES : Integer.BYTES;
+  }
+
+  static int rowsPerChunk(int cols, int width) throws IOException {
+    long rowBytes = (long) cols * width;
+    if (rowBytes > MAX_CHUNK) {
+      throw new IOException("Rows are too long to be mapped");
+    }
+    return (int) (MAX_CHUNK / rowBytes);
+  }
+
+  /**
+   * Maps the body of the file in chunks of whole rows.
+   *
+   * @return little-endian buffers, chunk i holding the rows from i * rowsPerChunk
+   */
+  static MappedByteBuffer[] map(
+      FileChannel channel, FileChannel.MapMode mode, int rows, int cols, int width)
+      throws IOException {
+    int rowsPerChunk = rowsPerChunk(cols, width);
+    long rowBytes = (long) cols * width;
+    MappedByteBuffer[] chunks =
+        new MappedByteBuffer[(int) (((long) rows + rowsPerChunk - 1) / rowsPerChunk)];
+    for (int chunk = 0; chunk < chunks.length; chunk++) {
+      long firstRow = (long) chunk * rowsPerChunk;
+      long chunkRows = Math.min(rowsPerChunk, rows - firstRow);
+      chunks[chunk] = channel.map(mode, HEADER_SIZE + firstRow * rowBytes, chunkRows * rowBytes);
+      chunks[chunk].order(ByteOrder.LITTLE_ENDIAN);
+    }
+    return chunks;
+  }
+
+  static ByteBuffer header(int rows, int cols, int width) {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    header.putInt(MAGIC).put(VERSION).put((byte) width).putShort((short) 0);
+    header.putInt(rows).putInt(cols);
+    return header.flip();
+  }
+}
@@ -0,0 +1,108 @@
+package com.github.vasatanasov.brickwork.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link LayerSource} reading a layer in the {@link BinaryFormat} from a memory-mapped file. Rows
+ * of 4 byte ids are bulk copied out of the mapping; narrower ids are only widened. Not thread-safe.
+ */
+public class BinaryLayerReader implements LayerSource {
+
+  private final int rows, cols, width;
+  private final int rowsPerChunk;
+  private final MappedByteBuffer[] chunks;
+  private final IntBuffer[] intChunks;
+  private final ShortBuffer[] shortChunks;
+
+  private BinaryLayerReader(int rows, int cols, int width, MappedByteBuffer[] chunks)
+      throws IOException {
+    this.rows = rows;
+    this.cols = cols;
+    this.width = width;
+    this.chunks = chunks;
+    rowsPerChunk = BinaryFormat.rowsPerChunk(cols, width);
+    intChunks = new IntBuffer[chunks.length];
+    shortChunks = new ShortBuffer[chunks.length];
+    for (int chunk = 0; chunk < chunks.length; chunk++) {
+      if (width == Integer.BYTES) {
+        intChunks[chunk] = chunks[chunk].asIntBuffer();
+      } else if (width == Short.BYTES) {
+        shortChunks[chunk] = chunks[chunk].asShortBuffer();
+      }
+    }
+  }
+
+  /**
+   * Maps the file. The file is closed right away, the mapping stays valid until it is garbage
+   * collected.
+   *
+   * @param file layer in the binary format
+   * @return reader of the layer
+   * @throws IOException if the file cannot be read or is not in the binary format
+   */
+  public static BinaryLayerReader open(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer header =
+          ByteBuffer.allocate(BinaryFormat.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      while (header.hasRemaining() && channel.read(header) != -1) {}
+      header.flip();
+      if (header.remaining() < BinaryFormat.HEADER_SIZE
+          || header.getInt() != BinaryFormat.MAGIC
+          || header.get() != BinaryFormat.VERSION) {
+        throw new IOException("Not a binary layer: " + file);
+      }
+      int width = header.get();
+      header.getShort();
+      int rows = header.getInt();
+      int cols = header.getInt();
+      if (width != Byte.BYTES && width != Short.BYTES && width != Integer.BYTES
+          || rows <= 0
+          || cols <= 0
+          || channel.size() < BinaryFormat.HEADER_SIZE + (long) rows * cols * width) {
+        throw new IOException("Corrupt binary layer: " + file);
+      }
+      MappedByteBuffer[] chunks =
+          BinaryFormat.map(channel, FileChannel.MapMode.READ_ONLY, rows, cols, width);
+      return new BinaryLayerReader(rows, cols, width, chunks);
+    }
+  }
+
+  @Override
+  public int getRows() {
+    return rows;
+  }
+
+  @Override
+  public int getCols() {
+    return cols;
+  }
+
+  @Override
+  public void readRow(int row, int[] values) {
+    int chunk = row / rowsPerChunk;
+    int first = (row % rowsPerChunk) * cols;
+    if (width == Integer.BYTES) {
+      IntBuffer ids = intChunks[chunk];
+      ids.position(first);
+      ids.get(values, 0, cols);
+    } else if (width == Short.BYTES) {
+      ShortBuffer ids = shortChunks[chunk];
+      for (int col = 0; col < cols; col++) {
+        values[col] = Short.toUnsignedInt(ids.get(first + col));
+      }
+    } else {
+      ByteBuffer ids = chunks[chunk];
+      for (int col = 0; col < cols; col++) {
+        values[col] = Byte.toUnsignedInt(ids.get(first + col));
+      }
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package com.github.vasatanasov.brickwork.io;
+
+import com.github.vasatanasov.brickwork.models.Layer;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** Writes a layer in the {@link BinaryFormat} through a memory-mapped file. */
+public class BinaryLayerWriter {
+
+  private BinaryLayerWriter() {}
+
+  /**
+   * Writes the layer with ids as narrow as its largest id allows.
+   *
+   * @param layer layer with positive ids
+   * @param file destination, replaced if it exists
+   * @throws IOException if the file cannot be written
+   */
+  public static void write(Layer layer, Path file) throws IOException {
+    int rows = layer.getRows();
+    int cols = layer.getCols();
+    int[] values = new int[cols];
+    long maxId = 0;
+    for (int row = 0; row < rows; row++) {
+      layer.getRow(row, values);
+      for (int value : values) {
+        maxId = Math.max(maxId, Integer.toUnsignedLong(value));
+      }
+    }
+    int width = BinaryFormat.widthOf(maxId);
+
+    try (FileChannel channel =
+        FileChannel.open(
+            file,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      channel.write(BinaryFormat.header(rows, cols, width));
+      MappedByteBuffer[] chunks =
+          BinaryFormat.map(channel, FileChannel.MapMode.READ_WRITE, rows, cols, width);
+      int rowsPerChunk = BinaryFormat.rowsPerChunk(cols, width);
+      for (int chunk = 0; chunk < chunks.length; chunk++) {
+        MappedByteBuffer bytes = chunks[chunk];
+        IntBuffer ints = width == Integer.BYTES ? bytes.asIntBuffer() : null;
+        ShortBuffer shorts = width == Short.BYTES ? bytes.asShortBuffer() : null;
+        int firstRow = chunk * rowsPerChunk;
+        int lastRow = Math.min(rows, firstRow + rowsPerChunk);
+        for (int row = firstRow; row < lastRow; row++) {
+          layer.getRow(row, values);
+          if (ints != null) {
+            ints.put(values, 0, cols);
+          } else if (shorts != null) {
+            for (int value : values) {
+              shorts.put((short) value);
+            }
+          } else {
+            for (int value : values) {
+              bytes.put((byte) value);
+            }
+          }
+        }
+        bytes.force();
+      }
+    }
+  }
+}
@@ -5,4 +5,41 @@ import java.io.IOException;
 public interface InputReader {
 
   String readLine() throws IOException;
+
+  /**
+   * Parses the whitespace separated integers of the next line into the given array without
+   * splitting the line into tokens.
+   *
+   * @param dest array receiving the values, values that do not fit are counted but not stored
+   * @return number of integers on the line or -1 at the end of the input
+   * @throws NumberFormatException if the line contains anything but integers
+   */
+  default int readInts(int[] dest) throws IOException {
+    String line = readLine();
+    if (line == null) {
+      return -1;
+    }
+
+    int count = 0;
+    int length = line.length();
+    int i = 0;
+    while (i < length) {
+      char c = line.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+        continue;
+      }
+      int end = i;
+      while (end < length && !Character.isWhitespace(line.charAt(end))) {
+        end++;
+      }
+      int value = Integer.parseInt(line, i, end, 10);
+      if (count < dest.length) {
+        dest[count] = value;
+      }
+      count++;
+      i = end;
+    }
+    return count;
+  }
 }
@@ -0,0 +1,20 @@
+package com.github.vasatanasov.brickwork.io;
+
+/**
+ * Source of a whole layer, handed over row by row without any parsing, e.g. {@link
+ * BinaryLayerReader}.
+ */
+public interface LayerSource {
+
+  int getRows();
+
+  int getCols();
+
+  /**
+   * Copies a row of the layer.
+   *
+   * @param row
+   * @param values destination holding at least cols values
+   */
+  void readRow(int row, int[] values);
+}
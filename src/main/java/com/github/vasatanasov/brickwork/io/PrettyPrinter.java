@@ -0,0 +1,352 @@
+package com.github.vasatanasov.brickwork.io;
+
+import com.github.vasatanasov.brickwork.models.Layer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Draws a layer row by row, with asterisks around and between the bricks:
+ *
+ * <pre>
+ * *********
+ * * 1 1 *2*
+ * ******* *
+ * * 3 3 *2*
+ * *********
+ * </pre>
+ *
+ * Each row is rendered into a reusable buffer and written out right away, so the drawing as a whole
+ * is never held in memory. The column width is computed once, from the widest value that may
+ * appear. Up to two characters the drawing keeps the original layout byte for byte; wider values
+ * are padded to the column width, so every row and border is equally long.
+ */
+public class PrettyPrinter {
+
+  private static final byte ASTERISK = '*';
+  private static final byte SPACE = ' ';
+  private static final byte[] LINE_SEPARATOR =
+      System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+  // Widest value drawn in the original layout, where halves are not padded.
+  private static final int LEGACY_WIDTH = 2;
+
+  private final int rows, cols;
+  private final int width;
+  private final Sink sink;
+  private final int[] values;
+  private final byte[] brickLine;
+  private final byte[] separation;
+  private final byte[] border;
+  private int brickLineLength;
+  private int separationLength;
+  private int row;
+
+  private PrettyPrinter(int rows, int cols, int maxWidth, Sink sink) {
+    this.rows = rows;
+    this.cols = cols;
+    this.sink = sink;
+    width = maxWidth;
+    // A horizontal brick of negative one digit values, " -1 -1 ", takes 4 characters per cell.
+    int capacity = cols * (Math.max(maxWidth, LEGACY_WIDTH + 1) + 1) + 1;
+    values = new int[cols];
+    brickLine = new byte[capacity];
+    separation = new byte[capacity];
+    border = new byte[capacity];
+    Arrays.fill(border, ASTERISK);
+    sink.reserve(capacity);
+  }
+
+  /**
+   * @param rows number of rows to print
+   * @param cols number of cols of each row
+   * @param maxValue greatest absolute value that may appear, sets the column width
+   * @param out destination of the drawing
+   * @return printer writing to the appendable
+   */
+  public static PrettyPrinter to(int rows, int cols, long maxValue, Appendable out) {
+    return new PrettyPrinter(rows, cols, width(maxValue), new CharSink(out));
+  }
+
+  /**
+   * @param rows number of rows to print
+   * @param cols number of cols of each row
+   * @param maxValue greatest absolute value that may appear, sets the column width
+   * @param out destination of the drawing
+   * @return printer writing to the channel
+   */
+  public static PrettyPrinter to(int rows, int cols, long maxValue, WritableByteChannel out) {
+    return new PrettyPrinter(rows, cols, width(maxValue), new ChannelSink(out));
+  }
+
+  /**
+   * Draws the whole layer. Every line, including the last one, ends with a line separator.
+   *
+   * @param layer
+   * @param out
+   * @throws IOException if the output cannot be written
+   */
+  public static void print(Layer layer, Appendable out) throws IOException {
+    to(layer.getRows(), layer.getCols(), maxAbsValue(layer), out).printLayer(layer);
+  }
+
+  /**
+   * Draws the whole layer. Every line, including the last one, ends with a line separator.
+   *
+   * @param layer
+   * @param out
+   * @throws IOException if the output cannot be written
+   */
+  public static void print(Layer layer, WritableByteChannel out) throws IOException {
+    to(layer.getRows(), layer.getCols(), maxAbsValue(layer), out).printLayer(layer);
+  }
+
+  /**
+   * @param layer
+   * @return the drawing of the layer without a trailing line separator
+   */
+  public static String toPrettyString(Layer layer) {
+    StringBuilder sb = new StringBuilder();
+    try {
+      print(layer, sb);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    sb.setLength(sb.length() - LINE_SEPARATOR.length);
+    return sb.toString();
+  }
+
+  /**
+   * Draws the next row, preceded by the top border if it is the first row and followed either by
+   * the separation from the next row or the bottom border if it is the last one.
+   *
+   * @param values values of the row, at least cols long
+   * @throws IOException if the output cannot be written
+   */
+  public void printRow(int[] values) throws IOException {
+    render(values);
+    if (row == 0) {
+      printBorder();
+    }
+    sink.write(brickLine, brickLineLength);
+    if (row < rows - 1) {
+      sink.write(separation, separationLength);
+    } else {
+      printBorder();
+    }
+    row++;
+  }
+
+  private void printLayer(Layer layer) throws IOException {
+    for (int r = 0; r < rows; r++) {
+      long index = (long) r * cols;
+      for (int col = 0; col < cols; col++) {
+        values[col] = layer.getValue(index + col);
+      }
+      printRow(values);
+    }
+  }
+
+  /**
+   * Renders the brick line and the separation below it. Two equal adjacent values form a
+   * horizontal brick closed by asterisks below, any other value is drawn as a single half with
+   * spaces below. Every half is padded to the column width.
+   */
+  private void render(int[] values) {
+    if (width <= LEGACY_WIDTH) {
+      renderLegacy(values);
+      return;
+    }
+    int b = 0;
+    int s = 0;
+    brickLine[b++] = ASTERISK;
+    separation[s++] = ASTERISK;
+    for (int col = 0; col < cols; col++) {
+      int value = values[col];
+      if (col < cols - 1 && value == values[col + 1]) {
+        b = writePadded(brickLine, b, value);
+        brickLine[b++] = SPACE;
+        b = writePadded(brickLine, b, value);
+        s = repeat(separation, s, ASTERISK, 2 * width + 1);
+        col++;
+      } else {
+        b = writePadded(brickLine, b, value);
+        s = repeat(separation, s, SPACE, width);
+      }
+      brickLine[b++] = ASTERISK;
+      separation[s++] = ASTERISK;
+    }
+    brickLineLength = b;
+    separationLength = s;
+  }
+
+  /**
+   * Renders the row the way the original drawing did: a horizontal brick takes five characters
+   * with five asterisks below, a single half is unpadded with one space below, two from 10 on.
+   * The last cell always gets one space below, none if it repeats the brick before it.
+   */
+  private void renderLegacy(int[] values) {
+    int b = 0;
+    int s = 0;
+    brickLine[b++] = ASTERISK;
+    separation[s++] = ASTERISK;
+    for (int col = 0; col < cols - 1; col++) {
+      int currentValue = values[col];
+      int nextValue = values[col + 1];
+      if (currentValue != nextValue) {
+        b = writeInt(brickLine, b, currentValue);
+        s = repeat(separation, s, SPACE, currentValue >= 10 ? 2 : 1);
+      } else {
+        if (currentValue < 10) brickLine[b++] = SPACE;
+        b = writeInt(brickLine, b, currentValue);
+        brickLine[b++] = SPACE;
+        b = writeInt(brickLine, b, currentValue);
+        if (currentValue < 10) brickLine[b++] = SPACE;
+        s = repeat(separation, s, ASTERISK, 5);
+        col++;
+        if (col < cols - 1) {
+          nextValue = values[col + 1];
+        }
+      }
+      brickLine[b++] = ASTERISK;
+      separation[s++] = ASTERISK;
+
+      if (col == cols - 2) {
+        b = writeInt(brickLine, b, nextValue);
+        brickLine[b++] = ASTERISK;
+        if (currentValue != nextValue) {
+          separation[s++] = SPACE;
+        }
+        separation[s++] = ASTERISK;
+      }
+    }
+    brickLineLength = b;
+    separationLength = s;
+  }
+
+  private void printBorder() throws IOException {
+    sink.write(border, brickLineLength);
+  }
+
+  private int writePadded(byte[] buffer, int position, int value) {
+    position = repeat(buffer, position, SPACE, width - width(value));
+    return writeInt(buffer, position, value);
+  }
+
+  private static int repeat(byte[] buffer, int position, byte b, int count) {
+    Arrays.fill(buffer, position, position + count, b);
+    return position + count;
+  }
+
+  private static int writeInt(byte[] buffer, int position, int value) {
+    long remaining = value;
+    if (remaining < 0) {
+      buffer[position++] = '-';
+      remaining = -remaining;
+    }
+    int end = position + digits(remaining);
+    for (int i = end - 1; i >= position; i--) {
+      buffer[i] = (byte) ('0' + remaining % 10);
+      remaining /= 10;
+    }
+    return end;
+  }
+
+  private static int width(long value) {
+    return value < 0 ? digits(-value) + 1 : digits(value);
+  }
+
+  private static int digits(long value) {
+    int digits = 1;
+    while (value >= 10) {
+      value /= 10;
+      digits++;
+    }
+    return digits;
+  }
+
+  private static long maxAbsValue(Layer layer) {
+    long max = 0;
+    long cells = (long) layer.getRows() * layer.getCols();
+    for (long index = 0; index < cells; index++) {
+      // The sign takes the place of a digit, so negative values count one digit wider.
+      int value = layer.getValue(index);
+      max = Math.max(max, value < 0 ? -10L * value : value);
+    }
+    return max;
+  }
+
+  /** Destination of the rendered lines. */
+  private interface Sink {
+    void reserve(int capacity);
+
+    /** Writes the line followed by a line separator. */
+    void write(byte[] line, int length) throws IOException;
+  }
+
+  private static class CharSink implements Sink {
+    private final Appendable out;
+    private char[] chars;
+    private CharBuffer charBuffer;
+
+    CharSink(Appendable out) {
+      this.out = out;
+    }
+
+    @Override
+    public void reserve(int capacity) {
+      chars = new char[capacity + LINE_SEPARATOR.length];
+      charBuffer = CharBuffer.wrap(chars);
+    }
+
+    @Override
+    public void write(byte[] line, int length) throws IOException {
+      for (int i = 0; i < length; i++) {
+        chars[i] = (char) line[i];
+      }
+      for (int i = 0; i < LINE_SEPARATOR.length; i++) {
+        chars[length + i] = (char) LINE_SEPARATOR[i];
+      }
+      int total = length + LINE_SEPARATOR.length;
+      if (out instanceof StringBuilder) {
+        ((StringBuilder) out).append(chars, 0, total);
+      } else if (out instanceof Writer) {
+        ((Writer) out).write(chars, 0, total);
+      } else {
+        charBuffer.clear().limit(total);
+        out.append(charBuffer);
+      }
+    }
+  }
+
+  private static class ChannelSink implements Sink {
+    private final WritableByteChannel out;
+    private byte[] bytes;
+    private ByteBuffer byteBuffer;
+
+    ChannelSink(WritableByteChannel out) {
+      this.out = out;
+    }
+
+    @Override
+    public void reserve(int capacity) {
+      bytes = new byte[capacity + LINE_SEPARATOR.length];
+      byteBuffer = ByteBuffer.wrap(bytes);
+    }
+
+    @Override
+    public void write(byte[] line, int length) throws IOException {
+      System.arraycopy(line, 0, bytes, 0, length);
+      System.arraycopy(LINE_SEPARATOR, 0, bytes, length, LINE_SEPARATOR.length);
+      byteBuffer.clear().limit(length + LINE_SEPARATOR.length);
+      while (byteBuffer.hasRemaining()) {
+        out.write(byteBuffer);
+      }
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package com.github.vasatanasov.brickwork.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link InputReader} tokenizing the raw bytes of an input stream through a reusable buffer.
+ * Integers are parsed straight from the bytes, so reading a row allocates nothing.
+ */
+public class StreamInputReader implements InputReader {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int END = -1;
+
+  private final InputStream inputStream;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private int position;
+  private int limit;
+
+  public StreamInputReader(InputStream inputStream) {
+    this.inputStream = inputStream;
+  }
+
+  @Override
+  public String readLine() throws IOException {
+    int b = read();
+    if (b == END) {
+      return null;
+    }
+
+    StringBuilder line = new StringBuilder();
+    while (b != END && b != '\n') {
+      line.append((char) b);
+      b = read();
+    }
+    int length = line.length();
+    if (length > 0 && line.charAt(length - 1) == '\r') {
+      line.setLength(length - 1);
+    }
+    return line.toString();
+  }
+
+  @Override
+  public int readInts(int[] dest) throws IOException {
+    int b = read();
+    if (b == END) {
+      return -1;
+    }
+
+    int count = 0;
+    while (b != END && b != '\n') {
+      if (isSpace(b)) {
+        b = read();
+        continue;
+      }
+
+      boolean negative = b == '-';
+      if (negative || b == '+') {
+        b = read();
+      }
+      if (!isDigit(b)) {
+        throw invalidNumber(b);
+      }
+      // Accumulated as a negative number, as Integer.parseInt does, to fit Integer.MIN_VALUE.
+      long value = 0;
+      while (isDigit(b)) {
+        value = value * 10 - (b - '0');
+        if (value < Integer.MIN_VALUE) {
+          throw invalidNumber(b);
+        }
+        b = read();
+      }
+      if (b != END && b != '\n' && !isSpace(b)) {
+        throw invalidNumber(b);
+      }
+      if (!negative && value == Integer.MIN_VALUE) {
+        throw invalidNumber(b);
+      }
+
+      if (count < dest.length) {
+        dest[count] = (int) (negative ? value : -value);
+      }
+      count++;
+    }
+    return count;
+  }
+
+  /** Skips the rest of the line, so reading may go on with the next one, and reports the error. */
+  private NumberFormatException invalidNumber(int b) throws IOException {
+    while (b != END && b != '\n') {
+      b = read();
+    }
+    return new NumberFormatException();
+  }
+
+  private int read() throws IOException {
+    if (position == limit) {
+      limit = inputStream.read(buffer, 0, BUFFER_SIZE);
+      position = 0;
+      if (limit <= 0) {
+        limit = 0;
+        return END;
+      }
+    }
+    return buffer[position++] & 0xFF;
+  }
+
+  private static boolean isDigit(int b) {
+    return b >= '0' && b <= '9';
+  }
+
+  private static boolean isSpace(int b) {
+    return b == ' ' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B;
+  }
+}
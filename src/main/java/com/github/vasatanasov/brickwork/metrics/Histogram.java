@@ -0,0 +1,43 @@
+package com.github.vasatanasov.brickwork.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative values in power of two buckets: bucket i counts the values
+ * from 2^i to 2^(i+1) - 1, with 0 falling in the first one. Recording a value is two {@link
+ * LongAdder} increments, which stay cheap under contention.
+ */
+class Histogram {
+
+  static final int BUCKETS = Long.SIZE;
+
+  private final LongAdder[] buckets = new LongAdder[BUCKETS];
+  private final LongAdder sum = new LongAdder();
+
+  Histogram() {
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  void record(long value) {
+    buckets[bucket(value)].increment();
+    sum.add(value);
+  }
+
+  long[] counts() {
+    long[] counts = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets[i].sum();
+    }
+    return counts;
+  }
+
+  long sum() {
+    return sum.sum();
+  }
+
+  static int bucket(long value) {
+    return value <= 1 ? 0 : Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+  }
+}
@@ -0,0 +1,185 @@
+package com.github.vasatanasov.brickwork.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and timings of the application, cheap enough to stay on in production: every update is
+ * a striped {@link LongAdder} increment, without locks. Read them with {@link #snapshot()} or,
+ * once {@link #registerMBean()} was called, over JMX.
+ */
+public class Metrics implements MetricsMXBean {
+
+  /** Timed phases of solving a wall. */
+  public enum Phase {
+    /** Reading the dimensions and the first layer. */
+    PARSE,
+    /** Validating the first layer. */
+    VALIDATE,
+    /** Building the second layer. */
+    SOLVE,
+    /** Drawing the second layer. */
+    RENDER
+  }
+
+  public static final String OBJECT_NAME = "com.github.vasatanasov.brickwork:type=Metrics";
+
+  private static final Metrics GLOBAL = new Metrics();
+
+  private final Histogram[] phases = new Histogram[Phase.values().length];
+  private final Histogram gridSizes = new Histogram();
+  private final LongAdder solved = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder bricksPlaced = new LongAdder();
+  private final LongAdder cellsProbed = new LongAdder();
+
+  public Metrics() {
+    for (int i = 0; i < phases.length; i++) {
+      phases[i] = new Histogram();
+    }
+  }
+
+  /** @return metrics shared by the whole application */
+  public static Metrics get() {
+    return GLOBAL;
+  }
+
+  /**
+   * Records the duration of a phase.
+   *
+   * @param phase
+   * @param startNanos value of {@link System#nanoTime()} when the phase started
+   * @return the current {@link System#nanoTime()}, i.e. the start of the next phase
+   */
+  public long record(Phase phase, long startNanos) {
+    long now = System.nanoTime();
+    phases[phase.ordinal()].record(now - startNanos);
+    return now;
+  }
+
+  /**
+   * Records a wall that was solved or rejected.
+   *
+   * @param cells number of cells of the wall
+   * @param success true if the wall was solved
+   */
+  public void recordWall(long cells, boolean success) {
+    gridSizes.record(cells);
+    (success ? solved : failed).increment();
+  }
+
+  /**
+   * Records the work of a solver.
+   *
+   * @param bricks number of bricks placed
+   * @param probes number of cells examined for a brick
+   */
+  public void recordSearch(long bricks, long probes) {
+    bricksPlaced.add(bricks);
+    cellsProbed.add(probes);
+  }
+
+  /** @return the current values; updates running concurrently may be partially included */
+  public MetricsSnapshot snapshot() {
+    long[][] phaseCounts = new long[phases.length][];
+    long[] phaseNanos = new long[phases.length];
+    for (int i = 0; i < phases.length; i++) {
+      phaseCounts[i] = phases[i].counts();
+      phaseNanos[i] = phases[i].sum();
+    }
+    return new MetricsSnapshot(
+        phaseCounts,
+        phaseNanos,
+        gridSizes.counts(),
+        solved.sum(),
+        failed.sum(),
+        bricksPlaced.sum(),
+        cellsProbed.sum());
+  }
+
+  /**
+   * Registers the metrics with the platform MBean server under {@value #OBJECT_NAME}. Does nothing
+   * if they are registered already.
+   *
+   * @throws IllegalStateException if the registration fails
+   */
+  public synchronized void registerMBean() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(OBJECT_NAME);
+      if (!server.isRegistered(name)) {
+        server.registerMBean(this, name);
+      }
+    } catch (JMException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public long getWallsSolved() {
+    return solved.sum();
+  }
+
+  @Override
+  public long getWallsFailed() {
+    return failed.sum();
+  }
+
+  @Override
+  public long getBricksPlaced() {
+    return bricksPlaced.sum();
+  }
+
+  @Override
+  public long getCellsProbed() {
+    return cellsProbed.sum();
+  }
+
+  @Override
+  public long[] getGridSizeHistogram() {
+    return gridSizes.counts();
+  }
+
+  @Override
+  public long[] getParseHistogram() {
+    return phases[Phase.PARSE.ordinal()].counts();
+  }
+
+  @Override
+  public long[] getValidateHistogram() {
+    return phases[Phase.VALIDATE.ordinal()].counts();
+  }
+
+  @Override
+  public long[] getSolveHistogram() {
+    return phases[Phase.SOLVE.ordinal()].counts();
+  }
+
+  @Override
+  public long[] getRenderHistogram() {
+    return phases[Phase.RENDER.ordinal()].counts();
+  }
+
+  @Override
+  public long getParseNanos() {
+    return phases[Phase.PARSE.ordinal()].sum();
+  }
+
+  @Override
+  public long getValidateNanos() {
+    return phases[Phase.VALIDATE.ordinal()].sum();
+  }
+
+  @Override
+  public long getSolveNanos() {
+    return phases[Phase.SOLVE.ordinal()].sum();
+  }
+
+  @Override
+  public long getRenderNanos() {
+    return phases[Phase.RENDER.ordinal()].sum();
+  }
+}
@@ -0,0 +1,35 @@
+package com.github.vasatanasov.brickwork.metrics;
+
+/**
+ * JMX view of the {@link Metrics}. Histograms are arrays of power of two buckets: bucket i counts
+ * the values from 2^i to 2^(i+1) - 1, in nanoseconds for the phases and in cells for the grid
+ * sizes.
+ */
+public interface MetricsMXBean {
+
+  long getWallsSolved();
+
+  long getWallsFailed();
+
+  long getBricksPlaced();
+
+  long getCellsProbed();
+
+  long[] getGridSizeHistogram();
+
+  long[] getParseHistogram();
+
+  long[] getValidateHistogram();
+
+  long[] getSolveHistogram();
+
+  long[] getRenderHistogram();
+
+  long getParseNanos();
+
+  long getValidateNanos();
+
+  long getSolveNanos();
+
+  long getRenderNanos();
+}
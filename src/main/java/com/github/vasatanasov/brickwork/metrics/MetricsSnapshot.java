@@ -0,0 +1,92 @@
+package com.github.vasatanasov.brickwork.metrics;
+
+import com.github.vasatanasov.brickwork.metrics.Metrics.Phase;
+
+/** Values of the {@link Metrics} at a point in time. */
+public class MetricsSnapshot {
+
+  private final long[][] phaseHistograms;
+  private final long[] phaseNanos;
+  private final long[] gridSizeHistogram;
+  private final long solved;
+  private final long failed;
+  private final long bricksPlaced;
+  private final long cellsProbed;
+
+  MetricsSnapshot(
+      long[][] phaseHistograms,
+      long[] phaseNanos,
+      long[] gridSizeHistogram,
+      long solved,
+      long failed,
+      long bricksPlaced,
+      long cellsProbed) {
+    this.phaseHistograms = phaseHistograms;
+    this.phaseNanos = phaseNanos;
+    this.gridSizeHistogram = gridSizeHistogram;
+    this.solved = solved;
+    this.failed = failed;
+    this.bricksPlaced = bricksPlaced;
+    this.cellsProbed = cellsProbed;
+  }
+
+  /** @return number of times the phase ran */
+  public long getCount(Phase phase) {
+    long count = 0;
+    for (long bucket : phaseHistograms[phase.ordinal()]) {
+      count += bucket;
+    }
+    return count;
+  }
+
+  /** @return total time spent in the phase */
+  public long getTotalNanos(Phase phase) {
+    return phaseNanos[phase.ordinal()];
+  }
+
+  /** @return durations of the phase in power of two buckets of nanoseconds */
+  public long[] getHistogram(Phase phase) {
+    return phaseHistograms[phase.ordinal()].clone();
+  }
+
+  /**
+   * Estimates a percentile of the durations of the phase by the upper bound of its bucket.
+   *
+   * @param phase
+   * @param percentile between 0 and 100
+   * @return upper bound of the bucket holding the percentile, 0 if the phase never ran
+   */
+  public long getPercentileNanos(Phase phase, double percentile) {
+    long[] histogram = phaseHistograms[phase.ordinal()];
+    long rank = (long) Math.ceil(getCount(phase) * percentile / 100);
+    long seen = 0;
+    for (int bucket = 0; bucket < histogram.length; bucket++) {
+      seen += histogram[bucket];
+      if (seen >= rank && seen > 0) {
+        return bucket == Histogram.BUCKETS - 1 ? Long.MAX_VALUE : (2L << bucket) - 1;
+      }
+    }
+    return 0;
+  }
+
+  /** @return sizes of the walls in power of two buckets of cells */
+  public long[] getGridSizeHistogram() {
+    return gridSizeHistogram.clone();
+  }
+
+  public long getWallsSolved() {
+    return solved;
+  }
+
+  public long getWallsFailed() {
+    return failed;
+  }
+
+  public long getBricksPlaced() {
+    return bricksPlaced;
+  }
+
+  public long getCellsProbed() {
+    return cellsProbed;
+  }
+}
@@ -0,0 +1,51 @@
+package com.github.vasatanasov.brickwork.models;
+
+import com.github.vasatanasov.brickwork.error.ErrorLog;
+
+import java.util.Arrays;
+
+/** {@link LayerStorage} backed by a single flat int array on the heap. */
+class HeapStorage implements LayerStorage {
+  // Largest array length the JVM reliably allocates.
+  private static final long MAX_CELLS = Integer.MAX_VALUE - 8;
+
+  private final int[] cells;
+
+  HeapStorage(long size) {
+    if (size > MAX_CELLS) {
+      ErrorLog.log("Layer is too large for heap storage");
+      throw new IllegalArgumentException();
+    }
+    cells = new int[(int) size];
+  }
+
+  @Override
+  public int get(long index) {
+    return cells[(int) index];
+  }
+
+  @Override
+  public void set(long index, int value) {
+    cells[(int) index] = value;
+  }
+
+  @Override
+  public void setRange(long index, int[] values, int length) {
+    System.arraycopy(values, 0, cells, (int) index, length);
+  }
+
+  @Override
+  public void getRange(long index, int[] values, int length) {
+    System.arraycopy(cells, (int) index, values, 0, length);
+  }
+
+  @Override
+  public void fill(long length, int value) {
+    Arrays.fill(cells, 0, (int) length, value);
+  }
+
+  @Override
+  public long capacity() {
+    return cells.length;
+  }
+}
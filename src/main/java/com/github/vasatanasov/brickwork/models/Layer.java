@@ -1,29 +1,77 @@
 package com.github.vasatanasov.brickwork.models;
 
-/** Data structure representing area with 1x2 brick slots */
+import com.github.vasatanasov.brickwork.error.ErrorLog;
+
+import java.util.function.LongFunction;
+
+/**
+ * Data structure representing area with 1x2 brick slots. The cells are stored row by row in a
+ * flat {@link LayerStorage}, so the dimensions are limited only by the available memory.
+ */
 public class Layer {
-  private final int totalBricksSlots;
+  private final LongFunction<LayerStorage> storage;
+  private int totalBricksSlots;
   private int rows;
   private int cols;
-  private final int[][] layer;
+  private long cells;
+  private LayerStorage layer;
   private int totalBricks;
 
-  private Layer(int rows, int cols) {
-    setRows(rows);
-    setCols(cols);
-    layer = new int[rows][cols];
-    totalBricksSlots = (rows * cols) / 2;
+  Layer(int rows, int cols, LongFunction<LayerStorage> storage) {
+    this.storage = storage;
+    reset(rows, cols);
   }
 
   /**
-   * Static factory method of the Layer class
+   * Static factory method of the Layer class. Creates a layer stored on the heap, use {@link
+   * LayerFactory} to pick another storage.
    *
    * @param rows number of layer rows, positive, even
    * @param cols number of layer cols, positive, even
    * @return {@link com.github.vasatanasov.brickwork.models.Layer}
    */
   public static Layer of(int rows, int cols) {
-    return new Layer(rows, cols);
+    return LayerFactory.heap().create(rows, cols);
+  }
+
+  /**
+   * Gives the layer new dimensions and removes all placed bricks. The storage is kept when it
+   * holds enough cells, so the cells keep their old values until they are set again.
+   *
+   * @param rows number of layer rows, positive, even
+   * @param cols number of layer cols, positive, even
+   * @throws IllegalArgumentException if the dimensions are invalid
+   */
+  public void reset(int rows, int cols) {
+    setRows(rows);
+    setCols(cols);
+    long cells = (long) rows * cols;
+    if (cells / 2 > Integer.MAX_VALUE) {
+      ErrorLog.log("Layer is too large");
+      throw new IllegalArgumentException();
+    }
+    if (layer == null || layer.capacity() < cells) {
+      layer = storage.apply(cells);
+    }
+    this.cells = cells;
+    totalBricksSlots = (int) (cells / 2);
+    totalBricks = 0;
+  }
+
+  /**
+   * Copies the cells and the brick count of a layer of the same dimensions.
+   *
+   * @param other
+   * @throws IllegalArgumentException if the dimensions differ
+   */
+  public void copyFrom(Layer other) {
+    if (other.rows != rows || other.cols != cols) {
+      throw new IllegalArgumentException();
+    }
+    for (long index = 0; index < cells; index++) {
+      layer.set(index, other.layer.get(index));
+    }
+    totalBricks = other.totalBricks;
   }
 
   public int getRows() {
@@ -43,7 +91,20 @@ public class Layer {
    */
   public int getValue(int row, int col) {
     checkRange(row, col);
-    return layer[row][col];
+    return layer.get(index(row, col));
+  }
+
+  /**
+   * Returns a value representing half of a brick from the layer by its row-major index, i.e. {@code
+   * row * cols + col}. Intended for loops over the whole layer, it costs a single bounds check.
+   *
+   * @param index
+   * @return brick half
+   * @throws IndexOutOfBoundsException if the index is out of layer's range
+   */
+  public int getValue(long index) {
+    checkIndex(index);
+    return layer.get(index);
   }
 
   /**
@@ -55,7 +116,68 @@ public class Layer {
    */
   public void setValue(int row, int col, int value) {
     checkRange(row, col);
-    layer[row][col] = value;
+    layer.set(index(row, col), value);
+  }
+
+  /**
+   * Sets a value representing half of a brick from the layer by its row-major index.
+   *
+   * @param index
+   * @param value
+   * @throws IndexOutOfBoundsException if the index is out of layer's range
+   */
+  public void setValue(long index, int value) {
+    checkIndex(index);
+    layer.set(index, value);
+  }
+
+  /**
+   * Copies a whole row of the layer into the given array.
+   *
+   * @param row
+   * @param values array holding at least cols values
+   * @throws IllegalArgumentException if the row is out of layer's range or the array is too short
+   */
+  public void getRow(int row, int[] values) {
+    checkRange(row, 0);
+    if (values.length < cols) {
+      throw new IllegalArgumentException();
+    }
+    layer.getRange(index(row, 0), values, cols);
+  }
+
+  /**
+   * Copies a whole row of values into the layer.
+   *
+   * @param row
+   * @param values array holding at least cols values
+   * @throws IllegalArgumentException if the row is out of layer's range or the values are too few
+   */
+  public void setRow(int row, int[] values) {
+    checkRange(row, 0);
+    if (values.length < cols) {
+      throw new IllegalArgumentException();
+    }
+    layer.setRange(index(row, 0), values, cols);
+  }
+
+  /** @return true if distinct cells may be written from several threads at once */
+  public boolean supportsConcurrentWrites() {
+    return layer.supportsConcurrentWrites();
+  }
+
+  public int getTotalBricks() {
+    return totalBricks;
+  }
+
+  /**
+   * Updates the number of placed bricks after the bricks were written with {@link #setValue}
+   * instead of {@link #placeBrick}.
+   *
+   * @param totalBricks
+   */
+  public void setTotalBricks(int totalBricks) {
+    this.totalBricks = totalBricks;
   }
 
   /** @return true if all bricks slots are taken else false */
@@ -78,8 +200,8 @@ public class Layer {
     int otherHalfCol = col + colOffset;
     checkRange(otherHalfRow, otherHalfCol);
     totalBricks += 1;
-    layer[row][col] = totalBricks;
-    layer[otherHalfRow][otherHalfCol] = totalBricks;
+    layer.set(index(row, col), totalBricks);
+    layer.set(index(otherHalfRow, otherHalfCol), totalBricks);
   }
 
   /**
@@ -93,13 +215,14 @@ public class Layer {
    * @return true if there are 2 different halves
    */
   public boolean canPlaceBrick(int row, int col, int rowOffset, int colOffset) {
-    checkRange(row, col);
-    if (layer[row][col] <= 0) return false;
     int otherHalfRow = row + rowOffset;
     int otherHalfCol = col + colOffset;
-    if (outOfRange(otherHalfRow, otherHalfCol)) return false;
-    if (layer[otherHalfRow][otherHalfCol] <= 0) return false;
-    return layer[row][col] != layer[otherHalfRow][otherHalfCol];
+    if (outOfRange(row, col) || outOfRange(otherHalfRow, otherHalfCol)) return false;
+    int half = layer.get(index(row, col));
+    if (half <= 0) return false;
+    int otherHalf = layer.get(index(otherHalfRow, otherHalfCol));
+    if (otherHalf <= 0) return false;
+    return half != otherHalf;
   }
 
   /**
@@ -117,13 +240,28 @@ public class Layer {
     int otherHalfRow = row + rowOffset;
     int otherHalfCol = col + colOffset;
     checkRange(otherHalfRow, otherHalfCol);
-    layer[row][col] = -layer[row][col];
-    layer[otherHalfRow][otherHalfCol] = -layer[otherHalfRow][otherHalfCol];
+    long index = index(row, col);
+    long otherIndex = index(otherHalfRow, otherHalfCol);
+    layer.set(index, -layer.get(index));
+    layer.set(otherIndex, -layer.get(otherIndex));
+  }
+
+  /** Restores the values marked by {@link #markAsPlaced} so the layer can be solved again. */
+  public void clearMarks() {
+    for (long i = 0; i < cells; i++) {
+      layer.set(i, Math.abs(layer.get(i)));
+    }
+  }
+
+  /** Removes all placed bricks from the layer. */
+  public void clear() {
+    layer.fill(cells, 0);
+    totalBricks = 0;
   }
 
   private void setRows(int rows) {
     if (isInvalidAreaParam(rows) || isOdd(rows)) {
-      System.err.println("Rows must be even number and less than 100");
+      ErrorLog.log("Rows must be positive even number");
       throw new IllegalArgumentException();
     }
     this.rows = rows;
@@ -131,12 +269,22 @@ public class Layer {
 
   private void setCols(int cols) {
     if (isInvalidAreaParam(cols) || isOdd(cols)) {
-      System.err.println("Columns must be even number and less than 100");
+      ErrorLog.log("Columns must be positive even number");
       throw new IllegalArgumentException();
     }
     this.cols = cols;
   }
 
+  private long index(int row, int col) {
+    return (long) row * cols + col;
+  }
+
+  private void checkIndex(long index) {
+    if (Long.compareUnsigned(index, cells) >= 0) {
+      throw new IndexOutOfBoundsException();
+    }
+  }
+
   private void checkRange(int row, int col) {
     if (outOfRange(row, col)) {
       throw new IllegalArgumentException();
@@ -152,19 +300,19 @@ public class Layer {
   }
 
   private boolean isInvalidAreaParam(int i) {
-    return i < 2 || i >= 100;
+    return i < 2;
   }
 
   @Override
   public String toString() {
     StringBuilder output = new StringBuilder();
     for (int row = 0; row < rows; row++) {
-      StringBuilder rowOutput = new StringBuilder();
       for (int col = 0; col < cols; col++) {
-        rowOutput.append(layer[row][col]).append(" ");
+        if (col > 0) output.append(" ");
+        output.append(layer.get(index(row, col)));
       }
-      output.append(rowOutput.toString().trim()).append(System.lineSeparator());
+      if (row < rows - 1) output.append(System.lineSeparator());
     }
-    return output.toString().trim();
+    return output.toString();
   }
 }
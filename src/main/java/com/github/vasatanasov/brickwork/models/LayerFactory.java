@@ -0,0 +1,91 @@
+package com.github.vasatanasov.brickwork.models;
+
+import com.github.vasatanasov.brickwork.error.ErrorLog;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Creates layers backed by a particular kind of {@link LayerStorage}. */
+public interface LayerFactory {
+
+  /**
+   * @param rows number of layer rows, positive, even
+   * @param cols number of layer cols, positive, even
+   * @return {@link com.github.vasatanasov.brickwork.models.Layer}
+   * @throws IllegalArgumentException if the dimensions are invalid
+   */
+  Layer create(int rows, int cols);
+
+  /** @return factory of layers stored in a flat array on the heap */
+  static LayerFactory heap() {
+    return (rows, cols) -> new Layer(rows, cols, HeapStorage::new);
+  }
+
+  /**
+   * Layers created by this factory store their cells as runs of regularly numbered bricks, falling
+   * back to dense cells where the pattern breaks, see {@link RunLengthStorage}. A running or stack
+   * bond wall then takes a few bytes per run instead of four per cell. The layers must not be
+   * written by several threads at once, so they report no support for concurrent writes and the
+   * parallel solver solves them on a single thread.
+   *
+   * @return factory of run-length encoded layers
+   */
+  static LayerFactory runLength() {
+    return (rows, cols) -> new Layer(rows, cols, RunLengthStorage::new);
+  }
+
+  /**
+   * Layers created by this factory are stored off-heap in temporary memory-mapped files inside the
+   * given directory. The files are unlinked as soon as they are mapped, so nothing is left behind.
+   *
+   * @param directory directory for the backing files
+   * @return factory of memory-mapped layers
+   */
+  static LayerFactory mapped(Path directory) {
+    return (rows, cols) ->
+        new Layer(
+            rows,
+            cols,
+            size -> {
+              try {
+                Path file = Files.createTempFile(directory, "layer", ".bin");
+                return new MappedStorage(file, size, true);
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+  }
+
+  /**
+   * Creates layers stored in the given memory-mapped files, the first created layer in the first
+   * file and the second one in the second file, e.g. the two layers of a {@link
+   * com.github.vasatanasov.brickwork.core.Brickwork}. The files are created or extended when
+   * needed and kept after the layers are discarded, so their cells may be prepared by another
+   * process.
+   *
+   * @param first backing file of the first created layer
+   * @param second backing file of the second created layer
+   * @return factory of two layers mapped onto the files
+   * @throws IllegalArgumentException if both paths are the same file
+   */
+  static LayerFactory mappedFiles(Path first, Path second) {
+    if (first.toAbsolutePath().normalize().equals(second.toAbsolutePath().normalize())) {
+      ErrorLog.log("Layers must be mapped onto distinct files");
+      throw new IllegalArgumentException();
+    }
+    Path[] files = {first, second};
+    AtomicInteger created = new AtomicInteger();
+    return (rows, cols) -> {
+      int layer = created.getAndIncrement();
+      if (layer >= files.length) {
+        ErrorLog.log("Only " + files.length + " layers may be mapped onto the files");
+        throw new IllegalStateException();
+      }
+      Path file = files[layer];
+      return new Layer(rows, cols, size -> new MappedStorage(file, size, false));
+    };
+  }
+}
@@ -0,0 +1,54 @@
+package com.github.vasatanasov.brickwork.models;
+
+/** Backing store of the cells of a {@link Layer}, addressed by their row-major index. */
+public interface LayerStorage {
+
+  int get(long index);
+
+  void set(long index, int value);
+
+  /**
+   * Copies consecutive cells from the given array.
+   *
+   * @param index index of the first cell
+   * @param values source array
+   * @param length number of cells to copy
+   */
+  default void setRange(long index, int[] values, int length) {
+    for (int i = 0; i < length; i++) {
+      set(index + i, values[i]);
+    }
+  }
+
+  /**
+   * Copies consecutive cells into the given array.
+   *
+   * @param index index of the first cell
+   * @param values destination array
+   * @param length number of cells to copy
+   */
+  default void getRange(long index, int[] values, int length) {
+    for (int i = 0; i < length; i++) {
+      values[i] = get(index + i);
+    }
+  }
+
+  /**
+   * Sets the first cells to the given value.
+   *
+   * @param length number of cells to set
+   * @param value
+   */
+  void fill(long length, int value);
+
+  /** @return number of cells the storage holds */
+  long capacity();
+
+  /**
+   * @return true if distinct cells may be written from several threads at once, e.g. by the
+   *     bands of a parallel solver
+   */
+  default boolean supportsConcurrentWrites() {
+    return true;
+  }
+}
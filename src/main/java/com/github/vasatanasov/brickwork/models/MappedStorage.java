@@ -0,0 +1,86 @@
+package com.github.vasatanasov.brickwork.models;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link LayerStorage} backed by a memory-mapped file, so the cells live outside the heap and are
+ * paged in by the operating system as they are accessed. A single mapping is limited to 2GB, so
+ * the file is mapped in fixed size chunks.
+ */
+class MappedStorage implements LayerStorage {
+  // 2^27 ints, i.e. 512MB per mapped chunk.
+  private static final int CHUNK_SHIFT = 27;
+  private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+  private final long size;
+  private final IntBuffer[] chunks;
+
+  /**
+   * Maps the file, creating or extending it when needed. The channel is closed right away, the
+   * mappings stay valid until they are garbage collected.
+   *
+   * @param file backing file
+   * @param size number of cells
+   * @param temporary whether the file is deleted once mapped
+   * @throws UncheckedIOException if the file cannot be mapped
+   */
+  MappedStorage(Path file, long size, boolean temporary) {
+    this.size = size;
+    int chunkCount = (int) ((size + CHUNK_MASK) >>> CHUNK_SHIFT);
+    chunks = new IntBuffer[chunkCount];
+    try (FileChannel channel = open(file, temporary)) {
+      for (int chunk = 0; chunk < chunkCount; chunk++) {
+        long first = (long) chunk << CHUNK_SHIFT;
+        long length = Math.min(size - first, 1L << CHUNK_SHIFT);
+        chunks[chunk] =
+            channel
+                .map(FileChannel.MapMode.READ_WRITE, first * Integer.BYTES, length * Integer.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asIntBuffer();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static FileChannel open(Path file, boolean temporary) throws IOException {
+    if (temporary) {
+      return FileChannel.open(
+          file,
+          StandardOpenOption.CREATE,
+          StandardOpenOption.READ,
+          StandardOpenOption.WRITE,
+          StandardOpenOption.DELETE_ON_CLOSE);
+    }
+    return FileChannel.open(
+        file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+  }
+
+  @Override
+  public int get(long index) {
+    return chunks[(int) (index >>> CHUNK_SHIFT)].get((int) (index & CHUNK_MASK));
+  }
+
+  @Override
+  public void set(long index, int value) {
+    chunks[(int) (index >>> CHUNK_SHIFT)].put((int) (index & CHUNK_MASK), value);
+  }
+
+  @Override
+  public void fill(long length, int value) {
+    for (long index = 0; index < length; index++) {
+      set(index, value);
+    }
+  }
+
+  @Override
+  public long capacity() {
+    return size;
+  }
+}
@@ -0,0 +1,307 @@
+package com.github.vasatanasov.brickwork.models;
+
+import java.util.Arrays;
+
+/**
+ * {@link LayerStorage} for patterned walls, e.g. running or stack bond, where the ids follow the
+ * cells in long regular runs. The cells are split into segments of {@value #SEGMENT_CELLS}, and
+ * every segment is stored as runs of cells, each run given by its start, its orientation and the
+ * id at a reference cell:
+ *
+ * <ul>
+ *   <li>horizontal bricks, the id grows by one every two cells;
+ *   <li>vertical bricks, the id grows by one every cell, as in a row of stacked bricks;
+ *   <li>constant, every cell holds the same value, e.g. an empty layer.
+ * </ul>
+ *
+ * <p>Cells are read and written in place, a write only splits or extends the runs around the cell.
+ * A segment whose pattern breaks into too many runs falls back to a dense array of its cells, so
+ * an irregular region costs what it does on the heap and the rest of the layer stays compact. The
+ * storage is not safe for concurrent writes, even to distinct cells, see {@link
+ * #supportsConcurrentWrites()}.
+ */
+class RunLengthStorage implements LayerStorage {
+
+  private static final int SEGMENT_SHIFT = 12;
+  private static final int SEGMENT_CELLS = 1 << SEGMENT_SHIFT;
+  private static final int SEGMENT_MASK = SEGMENT_CELLS - 1;
+  // Runs a segment may hold before it is stored densely, a fraction of the dense size.
+  private static final int MAX_RUNS = SEGMENT_CELLS / 16;
+
+  private final long size;
+  // A missing segment holds zeros only.
+  private final Segment[] segments;
+
+  RunLengthStorage(long size) {
+    this.size = size;
+    segments = new Segment[(int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+  }
+
+  @Override
+  public int get(long index) {
+    Segment segment = segments[(int) (index >>> SEGMENT_SHIFT)];
+    return segment == null ? 0 : segment.get((int) index & SEGMENT_MASK);
+  }
+
+  @Override
+  public void set(long index, int value) {
+    int number = (int) (index >>> SEGMENT_SHIFT);
+    Segment segment = segments[number];
+    if (segment == null) {
+      if (value == 0) {
+        return;
+      }
+      segment = segments[number] = new Segment(0);
+    }
+    segment.set((int) index & SEGMENT_MASK, value);
+  }
+
+  @Override
+  public void fill(long length, int value) {
+    int full = (int) (length >>> SEGMENT_SHIFT);
+    for (int number = 0; number < full; number++) {
+      if (value == 0) {
+        segments[number] = null;
+      } else if (segments[number] == null) {
+        segments[number] = new Segment(value);
+      } else {
+        segments[number].fill(value);
+      }
+    }
+    for (long index = (long) full << SEGMENT_SHIFT; index < length; index++) {
+      set(index, value);
+    }
+  }
+
+  @Override
+  public long capacity() {
+    return size;
+  }
+
+  // A write may split the runs of a segment shared with the cells another thread writes.
+  @Override
+  public boolean supportsConcurrentWrites() {
+    return false;
+  }
+
+  /** Cells of a segment, as runs or, once the pattern breaks, densely. */
+  private static final class Segment {
+    // Orientations a run may still have. A short run fits several of them, every write narrows
+    // them down, and the ones left always agree on the values of the run's cells.
+    private static final int CONSTANT = 1;
+    private static final int VERTICAL = 1 << 1;
+    // Horizontal bricks with the reference cell as the first or the second half of a brick.
+    private static final int HORIZONTAL_FIRST = 1 << 2;
+    private static final int HORIZONTAL_SECOND = 1 << 3;
+    private static final int ANY = CONSTANT | VERTICAL | HORIZONTAL_FIRST | HORIZONTAL_SECOND;
+    // Set once the run holds two bricks, which fixes the difference of consecutive ids.
+    private static final int STEP_KNOWN = 1 << 4;
+    private static final int INITIAL_RUNS = 4;
+
+    private int[] starts;
+    // Reference cell of the run, the id of its brick and the difference of consecutive ids.
+    private int[] origins;
+    private int[] bases;
+    private int[] steps;
+    private byte[] orientations;
+    private int count;
+    // Run of the last access, so scans along the cells rarely search.
+    private int last;
+    private int[] dense;
+
+    Segment(int value) {
+      fill(value);
+    }
+
+    // A filled segment is a single run again, even if it was stored densely.
+    void fill(int value) {
+      if (starts == null) {
+        starts = new int[INITIAL_RUNS];
+        origins = new int[INITIAL_RUNS];
+        bases = new int[INITIAL_RUNS];
+        steps = new int[INITIAL_RUNS];
+        orientations = new byte[INITIAL_RUNS];
+        dense = null;
+      }
+      count = 1;
+      last = 0;
+      define(0, 0, 0, value, 0, CONSTANT);
+    }
+
+    int get(int cell) {
+      if (dense != null) {
+        return dense[cell];
+      }
+      int run = find(cell);
+      int orientation = Integer.lowestOneBit(orientations[run] & ANY);
+      return bases[run] + brick(orientation, origins[run], cell) * steps[run];
+    }
+
+    void set(int cell, int value) {
+      if (dense != null) {
+        dense[cell] = value;
+        return;
+      }
+      int run = find(cell);
+      int start = starts[run];
+      int end = end(run);
+      if (get(cell) == value) {
+        return;
+      }
+      // The cell may continue the run before or after its own.
+      if (cell == start && run > 0 && extend(run - 1, cell, value)) {
+        if (end - start == 1) {
+          remove(run);
+        } else {
+          starts[run]++;
+        }
+        return;
+      }
+      if (cell == end - 1 && run + 1 < count && extend(run + 1, cell, value)) {
+        starts[run + 1]--;
+        if (end - start == 1) {
+          remove(run);
+        }
+        return;
+      }
+
+      if (end - start == 1) {
+        define(run, start, cell, value, 0, ANY);
+      } else if (cell == start) {
+        insert(run);
+        define(run, cell, cell, value, 0, ANY);
+        starts[run + 1] = cell + 1;
+      } else if (cell == end - 1) {
+        insert(run + 1);
+        define(run + 1, cell, cell, value, 0, ANY);
+      } else {
+        insert(run + 1);
+        insert(run + 1);
+        define(run + 1, cell, cell, value, 0, ANY);
+        define(run + 2, cell + 1, origins[run], bases[run], steps[run], orientations[run]);
+      }
+      if (count > MAX_RUNS) {
+        toDense();
+      }
+    }
+
+    private int find(int cell) {
+      int run = last < count ? last : 0;
+      if (starts[run] > cell || end(run) <= cell) {
+        if (run + 1 < count && starts[run + 1] <= cell && end(run + 1) > cell) {
+          run++;
+        } else {
+          // Index of the last run starting at or before the cell.
+          run = Arrays.binarySearch(starts, 0, count, cell);
+          if (run < 0) {
+            run = -run - 2;
+          }
+        }
+      }
+      last = run;
+      return run;
+    }
+
+    private int end(int run) {
+      return run + 1 < count ? starts[run + 1] : SEGMENT_CELLS;
+    }
+
+    /**
+     * Narrows the orientations of the run down to the ones the value at the cell next to it fits.
+     *
+     * @return false if the value fits none, the run is unchanged then
+     */
+    private boolean extend(int run, int cell, int value) {
+      boolean stepKnown = (orientations[run] & STEP_KNOWN) != 0;
+      int step = steps[run];
+      int fits = 0;
+      for (int left = orientations[run] & ANY; left != 0; left &= left - 1) {
+        int orientation = Integer.lowestOneBit(left);
+        int brick = brick(orientation, origins[run], cell);
+        if (brick == 0) {
+          if (value == bases[run]) {
+            fits |= orientation;
+          }
+        } else if (stepKnown) {
+          if (bases[run] + brick * step == value) {
+            fits |= orientation;
+          }
+        } else if (value != bases[run]) {
+          // All cells of the run belong to the reference brick, so the cell is the first one of
+          // the brick next to it, before or after, and sets the step of every orientation alike.
+          // An equal value is left to the constant orientation rather than taken as a step of 0.
+          fits |= orientation | STEP_KNOWN;
+          steps[run] = (value - bases[run]) * brick;
+        }
+      }
+      if ((fits & ANY) == 0) {
+        steps[run] = step;
+        return false;
+      }
+      orientations[run] = (byte) (fits | (orientations[run] & STEP_KNOWN));
+      return true;
+    }
+
+    /** @return number of bricks from the reference cell to the cell, in the given orientation */
+    private static int brick(int orientation, int origin, int cell) {
+      switch (orientation) {
+        case CONSTANT:
+          return 0;
+        case VERTICAL:
+          return cell - origin;
+        case HORIZONTAL_FIRST:
+          return (cell - origin) >> 1;
+        default:
+          return (cell - origin + 1) >> 1;
+      }
+    }
+
+    private void define(int run, int start, int origin, int base, int step, int orientation) {
+      starts[run] = start;
+      origins[run] = origin;
+      bases[run] = base;
+      steps[run] = step;
+      orientations[run] = (byte) orientation;
+    }
+
+    // Makes room for a run at the given index, a copy of the run that was there.
+    private void insert(int run) {
+      if (count == starts.length) {
+        // A split adds two runs at most before the segment turns dense.
+        int length = Math.min(2 * count, MAX_RUNS + 2);
+        starts = Arrays.copyOf(starts, length);
+        origins = Arrays.copyOf(origins, length);
+        bases = Arrays.copyOf(bases, length);
+        steps = Arrays.copyOf(steps, length);
+        orientations = Arrays.copyOf(orientations, length);
+      }
+      int moved = count - run;
+      System.arraycopy(starts, run, starts, run + 1, moved);
+      System.arraycopy(origins, run, origins, run + 1, moved);
+      System.arraycopy(bases, run, bases, run + 1, moved);
+      System.arraycopy(steps, run, steps, run + 1, moved);
+      System.arraycopy(orientations, run, orientations, run + 1, moved);
+      count++;
+    }
+
+    private void remove(int run) {
+      int moved = count - run - 1;
+      System.arraycopy(starts, run + 1, starts, run, moved);
+      System.arraycopy(origins, run + 1, origins, run, moved);
+      System.arraycopy(bases, run + 1, bases, run, moved);
+      System.arraycopy(steps, run + 1, steps, run, moved);
+      System.arraycopy(orientations, run + 1, orientations, run, moved);
+      count--;
+    }
+
+    private void toDense() {
+      int[] cells = new int[SEGMENT_CELLS];
+      for (int cell = 0; cell < SEGMENT_CELLS; cell++) {
+        cells[cell] = get(cell);
+      }
+      dense = cells;
+      starts = origins = bases = steps = null;
+      orientations = null;
+    }
+  }
+}
@@ -1,17 +1,48 @@
 package com.github.vasatanasov.brickwork.core;
 
+import com.github.vasatanasov.brickwork.error.Failure;
 import com.github.vasatanasov.brickwork.error.NoSolutionException;
+import com.github.vasatanasov.brickwork.io.BinaryLayerReader;
+import com.github.vasatanasov.brickwork.io.BinaryLayerWriter;
 import com.github.vasatanasov.brickwork.io.InputReader;
 import com.github.vasatanasov.brickwork.io.InputReaderImpl;
+import com.github.vasatanasov.brickwork.io.PrettyPrinter;
+import com.github.vasatanasov.brickwork.io.StreamInputReader;
+import com.github.vasatanasov.brickwork.metrics.Metrics;
+import com.github.vasatanasov.brickwork.metrics.MetricsSnapshot;
+import com.github.vasatanasov.brickwork.models.Layer;
+import com.github.vasatanasov.brickwork.models.LayerFactory;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.Mockito;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 class BrickworkTest {
 
@@ -28,6 +59,21 @@ class BrickworkTest {
     Assertions.assertEquals(result, String.join(System.lineSeparator(), output));
   }
 
+  @ParameterizedTest
+  @MethodSource("provideValidInputs")
+  public void when_validInputStream_ShouldPrintResult(
+      String dimension, String[] input, String[] output) {
+    Manager manager = new Manager(streamReader(dimension, input));
+    manager.run();
+    String result = manager.toStringSecondLayer();
+    Assertions.assertEquals(result, String.join(System.lineSeparator(), output));
+  }
+
+  private static InputReader streamReader(String dimension, String[] input) {
+    String text = dimension + "\n" + String.join("\n", input) + "\n";
+    return new StreamInputReader(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII)));
+  }
+
   private static Stream<Arguments> provideValidInputs() {
     return Stream.of(
         Arguments.of(
@@ -103,9 +149,1012 @@ class BrickworkTest {
               "1 2", //
               "3 4", //
               "3 4", //
+            }),
+        Arguments.of(
+            "6 10",
+            new String[] {
+              "1 1 2 2 3 3 4 4 5 5", // Greedy gets stuck, solved block by block
+              "6 6 7 7 8 8 9 9 10 10", //
+              "11 11 16 12 12 13 13 19 14 14", //
+              "15 15 16 17 17 18 18 19 20 20", //
+              "21 21 77 55 23 23 47 49 60 70", //
+              "99 99 77 55 33 33 47 49 60 70", //
+              ""
+            },
+            new String[] {
+              "1 2 3 4 5 6 7 8 9 10", //
+              "1 2 3 4 5 6 7 8 9 10", //
+              "11 12 13 13 15 15 17 17 19 20", //
+              "11 12 14 14 16 16 18 18 19 20", //
+              "21 22 23 23 25 26 27 27 29 29", //
+              "21 22 24 24 25 26 28 28 30 30", //
             }));
   }
 
+  @Test
+  public void when_largeLayer_ShouldCompleteSecondLayer() {
+    int rows = 1000;
+    int cols = 1000;
+    int[][] input = new int[rows][cols];
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < cols; col++) {
+        input[row][col] = (row * cols + col) / 2 + 1;
+      }
+    }
+    Brickwork brickwork = Brickwork.init(rows, cols);
+    brickwork.setFirstLayer(input);
+    brickwork.setSecondLayer();
+    Assertions.assertTrue(brickwork.getSecondLayer().isComplete());
+  }
+
+  @Test
+  public void when_mappedLayers_ShouldMatchHeapLayers(@TempDir Path directory) {
+    int[][] input = {
+      {1, 2, 3, 4, 5, 6, 7, 8, 9, 10},
+      {1, 2, 3, 4, 5, 6, 7, 8, 9, 10},
+      {11, 12, 13, 13, 14, 14, 15, 16, 16, 20},
+      {11, 12, 17, 17, 18, 18, 15, 19, 19, 20}
+    };
+    Brickwork heap = Brickwork.init(4, 10);
+    heap.setFirstLayer(input);
+    heap.setSecondLayer();
+    Brickwork mapped = Brickwork.init(4, 10, LayerFactory.mapped(directory), new BlockSolver());
+    mapped.setFirstLayer(input);
+    mapped.setSecondLayer();
+    Assertions.assertEquals(heap.getSecondLayer().toString(), mapped.getSecondLayer().toString());
+  }
+
+  @Test
+  public void when_mappedFileLayers_ShouldSolveAndVerify(@TempDir Path directory) {
+    int[][] input = WallGenerator.of(3).generate(6, 8);
+    LayerFactory files =
+        LayerFactory.mappedFiles(directory.resolve("first.bin"), directory.resolve("second.bin"));
+    Brickwork mapped = Brickwork.init(6, 8, files, new BlockSolver());
+    mapped.setFirstLayer(input);
+    Assertions.assertTrue(mapped.solve().isSolved());
+    Assertions.assertTrue(mapped.verify().isSolved());
+
+    Brickwork heap = Brickwork.init(6, 8);
+    heap.setFirstLayer(input);
+    heap.setSecondLayer();
+    Assertions.assertEquals(heap.getSecondLayer().toString(), mapped.getSecondLayer().toString());
+    Assertions.assertThrows(
+        IllegalArgumentException.class,
+        () -> LayerFactory.mappedFiles(directory.resolve("a.bin"), directory.resolve("a.bin")));
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideScaleWalls")
+  public void when_runLengthLayers_ShouldMatchHeapLayers(int size, WallGenerator.Pattern pattern) {
+    WallGenerator generator = WallGenerator.of(size).pattern(pattern);
+    Brickwork heap = Brickwork.init(size, size);
+    generator.generate(heap);
+    heap.setSecondLayer();
+    Brickwork runLength =
+        Brickwork.init(size, size, LayerFactory.runLength(), new BlockSolver());
+    generator.generate(runLength);
+    runLength.validateFirstLayer();
+    runLength.setSecondLayer();
+    Assertions.assertEquals(
+        heap.getSecondLayer().toString(), runLength.getSecondLayer().toString());
+  }
+
+  @Test
+  public void when_runLengthLayersWithPool_ShouldSolveSequentially() {
+    int rows = 400;
+    int cols = 60;
+    int[][] input = WallGenerator.of(2).horizontalRatio(0).generate(rows, cols);
+    Brickwork heap = Brickwork.init(rows, cols);
+    heap.setFirstLayer(input);
+    heap.setSecondLayer();
+    Brickwork runLength = Brickwork.init(rows, cols, LayerFactory.runLength(), new BlockSolver());
+    runLength.setFirstLayer(input);
+
+    Assertions.assertFalse(runLength.getSecondLayer().supportsConcurrentWrites());
+    Assertions.assertTrue(heap.getSecondLayer().supportsConcurrentWrites());
+    ForkJoinPool pool = new ForkJoinPool(8);
+    try {
+      runLength.setSecondLayer(pool);
+    } finally {
+      pool.shutdown();
+    }
+    Assertions.assertTrue(runLength.verify().isSolved());
+    Assertions.assertEquals(
+        heap.getSecondLayer().toString(), runLength.getSecondLayer().toString());
+  }
+
+  @Test
+  public void when_patternedWallRunLength_ShouldTakeFewBytesPerRow() {
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long thread = Thread.currentThread().getId();
+    int size = 2000;
+    Layer layer = LayerFactory.runLength().create(size, size);
+    int[] row = new int[size];
+    long allocated = threads.getThreadAllocatedBytes(thread);
+    for (int r = 0; r < size; r++) {
+      for (int col = 0; col < size; col++) {
+        // Running bond: every other row is shifted by half a brick.
+        row[col] = r * (size / 2 + 1) + (col + r % 2) / 2 + 1;
+      }
+      layer.setRow(r, row);
+    }
+    allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+
+    Assertions.assertEquals(2 * (size / 2 + 1) + 1, layer.getValue(2, 1));
+    Assertions.assertEquals(layer.getValue(1, 1), layer.getValue(1, 2));
+    // The same cells take 16MB on the heap.
+    Assertions.assertTrue(allocated < 1024 * 1024, allocated + " B");
+  }
+
+  @Test
+  public void when_streaming_ShouldWriteEachBandRightAway() throws IOException {
+    StreamingBrickwork streamingBrickwork = StreamingBrickwork.init(4, 4);
+    StringBuilder out = new StringBuilder();
+    streamingBrickwork.addRow(new int[] {1, 1, 2, 3}, out);
+    streamingBrickwork.addRow(new int[] {4, 4, 2, 3}, out);
+    Assertions.assertEquals(
+        String.join(System.lineSeparator(), "1 2 3 3", "1 2 4 4", ""), out.toString());
+    streamingBrickwork.addRow(new int[] {5, 6, 6, 7}, out);
+    streamingBrickwork.addRow(new int[] {5, 8, 8, 7}, out);
+    streamingBrickwork.finish();
+    Assertions.assertEquals(
+        String.join(
+            System.lineSeparator(), "1 2 3 3", "1 2 4 4", "5 5 7 7", "6 6 8 8", ""),
+        out.toString());
+  }
+
+  @Test
+  public void when_streamingPretty_ShouldMatchWholeLayerDrawing() throws IOException {
+    int[][] secondLayer = {{1, 2, 3, 3}, {1, 2, 4, 4}, {5, 5, 7, 7}, {6, 6, 8, 8}};
+    Layer layer = Layer.of(4, 4);
+    for (int row = 0; row < secondLayer.length; row++) {
+      layer.setRow(row, secondLayer[row]);
+    }
+    StringBuilder out = new StringBuilder();
+    PrettyPrinter printer = PrettyPrinter.to(4, 4, 8, out);
+    StreamingBrickwork streamingBrickwork = StreamingBrickwork.init(4, 4);
+    streamingBrickwork.addRow(new int[] {1, 1, 2, 3}, printer);
+    streamingBrickwork.addRow(new int[] {4, 4, 2, 3}, printer);
+    streamingBrickwork.addRow(new int[] {5, 6, 6, 7}, printer);
+    streamingBrickwork.addRow(new int[] {5, 8, 8, 7}, printer);
+    streamingBrickwork.finish();
+    Assertions.assertEquals(
+        Brickwork.toPrettyString(layer) + System.lineSeparator(), out.toString());
+  }
+
+  @Test
+  public void when_prettyPrintingIdsBelow100_ShouldMatchOriginalDrawing() {
+    List<int[][]> walls = new ArrayList<>();
+    walls.add(new int[][] {{1, 1, 2, 3, 3, 4, 5, 5, 6, 10}, {7, 7, 2, 8, 8, 4, 9, 9, 6, 10}});
+    walls.add(
+        new int[][] {{11, 11, 12, 12}, {13, 14, 14, 15}, {13, 16, 16, 15}, {17, 17, 18, 18}});
+    for (WallGenerator.Pattern pattern : WallGenerator.Pattern.values()) {
+      walls.add(WallGenerator.of(5).pattern(pattern).generate(6, 32));
+    }
+    for (int[][] wall : walls) {
+      Layer layer = Layer.of(wall.length, wall[0].length);
+      for (int row = 0; row < wall.length; row++) {
+        layer.setRow(row, wall[row]);
+      }
+      Assertions.assertEquals(originalPrettyString(layer), Brickwork.toPrettyString(layer));
+    }
+  }
+
+  @Test
+  public void when_prettyPrintingIdsFrom100_ShouldAlignRows() {
+    int cols = 220;
+    int[][] input = WallGenerator.of(11).generate(2, cols);
+    Layer firstLayer = Layer.of(2, cols);
+    firstLayer.setRow(0, input[0]);
+    firstLayer.setRow(1, input[1]);
+    Brickwork brickwork = Brickwork.init(2, cols);
+    brickwork.setFirstLayer(input);
+    brickwork.setSecondLayer();
+    for (Layer layer : Arrays.asList(firstLayer, brickwork.getSecondLayer())) {
+      String[] lines = Brickwork.toPrettyString(layer).split(System.lineSeparator());
+      Assertions.assertEquals(5, lines.length);
+      for (String line : lines) {
+        Assertions.assertEquals(cols * 4 + 1, line.length());
+      }
+    }
+  }
+
+  // The drawing before it was streamed, kept as the reference for ids below 100.
+  private static String originalPrettyString(Layer layer) {
+    StringBuilder sb = new StringBuilder();
+    for (int row = 0; row < layer.getRows(); row++) {
+      StringBuilder brickLine = new StringBuilder("*");
+      StringBuilder separation = new StringBuilder("*");
+      for (int col = 0; col < layer.getCols() - 1; col++) {
+        int currentValue = layer.getValue(row, col);
+        int nextValue = layer.getValue(row, col + 1);
+        if (currentValue != nextValue) {
+          brickLine.append(currentValue);
+          separation.append(currentValue >= 10 ? "  " : " ");
+        } else {
+          brickLine.append(
+              currentValue >= 10
+                  ? currentValue + " " + currentValue
+                  : " " + currentValue + " " + currentValue + " ");
+          separation.append("*****");
+          col++;
+          if (col < layer.getCols() - 1) {
+            nextValue = layer.getValue(row, col + 1);
+          }
+        }
+        brickLine.append('*');
+        separation.append('*');
+        if (col == layer.getCols() - 2) {
+          brickLine.append(nextValue).append('*');
+          separation.append(currentValue != nextValue ? " *" : "*");
+        }
+      }
+      String border = "*".repeat(brickLine.length());
+      if (row == 0) {
+        sb.append(border).append(System.lineSeparator());
+      }
+      sb.append(brickLine).append(System.lineSeparator());
+      sb.append(row < layer.getRows() - 1 ? separation : border).append(System.lineSeparator());
+    }
+    return sb.toString().trim();
+  }
+
+  @Test
+  public void when_streamingHorizontalRows_ShouldDifferFromGreedy() throws IOException {
+    int[][] input = {{1, 1, 2, 2}, {3, 3, 4, 4}};
+    StringBuilder out = new StringBuilder();
+    PrettyPrinter printer = PrettyPrinter.to(2, 4, 4, out);
+    StreamingBrickwork streamingBrickwork = StreamingBrickwork.init(2, 4);
+    streamingBrickwork.addRow(input[0], printer);
+    streamingBrickwork.addRow(input[1], printer);
+    streamingBrickwork.finish();
+    Brickwork brickwork = Brickwork.init(2, 4);
+    brickwork.setFirstLayer(input);
+    SolveResult result = brickwork.solve();
+
+    Layer streamed = Layer.of(2, 4);
+    streamed.setRow(0, new int[] {1, 2, 3, 4});
+    streamed.setRow(1, new int[] {1, 2, 3, 4});
+    Assertions.assertEquals(
+        Brickwork.toPrettyString(streamed) + System.lineSeparator(), out.toString());
+    Assertions.assertTrue(result.isSolved());
+    Assertions.assertNotEquals(
+        Brickwork.toPrettyString(streamed), Brickwork.toPrettyString(result.getSecondLayer()));
+  }
+
+  @Test
+  public void when_streamingInvalidBrick_ShouldThrow() throws IOException {
+    StreamingBrickwork streamingBrickwork = StreamingBrickwork.init(2, 4);
+    StringBuilder out = new StringBuilder();
+    streamingBrickwork.addRow(new int[] {1, 1, 1, 2}, out);
+    Assertions.assertThrows(
+        IllegalArgumentException.class,
+        () -> streamingBrickwork.addRow(new int[] {3, 3, 3, 2}, out));
+  }
+
+  @Test
+  public void when_parallel_ShouldMatchSequential() {
+    int rows = 400;
+    int cols = 60;
+    int[][] input = new int[rows][cols];
+    int brick = 1;
+    for (int row = 0; row < rows; row += 2) {
+      for (int col = 0; col < cols; col += 2) {
+        if ((row / 2 + col / 2) % 3 == 0) {
+          input[row][col] = input[row + 1][col] = brick++;
+          input[row][col + 1] = input[row + 1][col + 1] = brick++;
+        } else {
+          input[row][col] = input[row][col + 1] = brick++;
+          input[row + 1][col] = input[row + 1][col + 1] = brick++;
+        }
+      }
+    }
+    assertParallelMatchesSequential(input);
+  }
+
+  @Test
+  public void when_parallelOnGreedySolvableWall_ShouldSolveBandsAndKeepFirstLayer() {
+    int rows = 400;
+    int cols = 60;
+    int[][] input = WallGenerator.of(1).horizontalRatio(0).generate(rows, cols);
+    Brickwork sequential = Brickwork.init(rows, cols);
+    sequential.setFirstLayer(input);
+    sequential.setSecondLayer();
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      Layer firstLayer = Layer.of(rows, cols);
+      for (int row = 0; row < rows; row++) {
+        firstLayer.setRow(row, input[row]);
+      }
+      Layer secondLayer = Layer.of(rows, cols);
+      Assertions.assertTrue(new ParallelSolver(pool).solve(firstLayer, secondLayer));
+      Assertions.assertEquals(
+          sequential.getSecondLayer().toString(), secondLayer.toString());
+
+      Brickwork parallel = Brickwork.init(rows, cols);
+      parallel.setFirstLayer(input);
+      parallel.setSecondLayer(pool);
+      Assertions.assertTrue(parallel.solve().isSolved());
+      Assertions.assertTrue(parallel.verify().isSolved());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void when_parallelGreedyStuck_ShouldMatchSequential() {
+    assertParallelMatchesSequential(
+        new int[][] {
+          {1, 1, 2, 2, 3, 3, 4, 4, 5, 5},
+          {6, 6, 7, 7, 8, 8, 9, 9, 10, 10},
+          {11, 11, 16, 12, 12, 13, 13, 19, 14, 14},
+          {15, 15, 16, 17, 17, 18, 18, 19, 20, 20},
+          {21, 21, 77, 55, 23, 23, 47, 49, 60, 70},
+          {99, 99, 77, 55, 33, 33, 47, 49, 60, 70}
+        });
+  }
+
+  private static void assertParallelMatchesSequential(int[][] input) {
+    int rows = input.length;
+    int cols = input[0].length;
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      Brickwork sequential = Brickwork.init(rows, cols);
+      sequential.setFirstLayer(input);
+      sequential.setSecondLayer();
+      Brickwork parallel = Brickwork.init(rows, cols);
+      parallel.setFirstLayer(input);
+      parallel.setSecondLayer(pool);
+      Assertions.assertTrue(parallel.getSecondLayer().isComplete());
+      Assertions.assertEquals(
+          sequential.getSecondLayer().toString(), parallel.getSecondLayer().toString());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void when_batch_ShouldReportEachWallInInputOrder() throws IOException {
+    String input =
+        String.join(
+            "\n",
+            "2 4",
+            "1 1 2 2",
+            "3 3 4 4",
+            "",
+            "2 4",
+            "1 1 2 ",
+            "3 3 4 4",
+            "",
+            "2 4",
+            "1 1 1 2",
+            "3 3 3 2",
+            "",
+            "",
+            "4 2",
+            "1 1",
+            "2 2",
+            "3 3",
+            "4 4",
+            "");
+    StringBuilder out = new StringBuilder();
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      new BrickworkBatch(pool)
+          .run(
+              new StreamInputReader(
+                  new ByteArrayInputStream(input.getBytes(StandardCharsets.US_ASCII))),
+              out);
+    } finally {
+      pool.shutdown();
+    }
+    String separator = System.lineSeparator();
+    Assertions.assertEquals(
+        String.join(
+            separator,
+            "2 1 1 4",
+            "2 3 3 4",
+            "",
+            "-1",
+            "",
+            "-1",
+            "",
+            "1 2",
+            "1 2",
+            "3 4",
+            "3 4",
+            "",
+            ""),
+        out.toString());
+  }
+
+  @Test
+  public void when_solving_ShouldUpdateMetrics() throws JMException {
+    Metrics metrics = Metrics.get();
+    MetricsSnapshot before = metrics.snapshot();
+    Brickwork valid = Brickwork.init(2, 4);
+    valid.setFirstLayerRow(0, new int[] {1, 1, 2, 3});
+    valid.setFirstLayerRow(1, new int[] {4, 4, 2, 3});
+    valid.solve();
+    Brickwork invalid = Brickwork.init(2, 4);
+    invalid.setFirstLayerRow(0, new int[] {1, 1, 1, 3});
+    invalid.setFirstLayerRow(1, new int[] {4, 4, 2, 3});
+    invalid.solve();
+    MetricsSnapshot after = metrics.snapshot();
+
+    Assertions.assertTrue(after.getWallsSolved() >= before.getWallsSolved() + 1);
+    Assertions.assertTrue(after.getWallsFailed() >= before.getWallsFailed() + 1);
+    Assertions.assertTrue(after.getBricksPlaced() >= before.getBricksPlaced() + 4);
+    Assertions.assertTrue(
+        after.getCount(Metrics.Phase.VALIDATE) >= before.getCount(Metrics.Phase.VALIDATE) + 2);
+    Assertions.assertTrue(
+        after.getGridSizeHistogram()[3] >= before.getGridSizeHistogram()[3] + 2);
+    Assertions.assertTrue(after.getPercentileNanos(Metrics.Phase.SOLVE, 50) > 0);
+
+    metrics.registerMBean();
+    Object solved =
+        ManagementFactory.getPlatformMBeanServer()
+            .getAttribute(new ObjectName(Metrics.OBJECT_NAME), "WallsSolved");
+    Assertions.assertTrue((Long) solved >= after.getWallsSolved());
+  }
+
+  @Test
+  public void when_pooled_ShouldReuseInstanceAndStorage() {
+    BrickworkPool pool = new BrickworkPool(1);
+    Brickwork large = pool.acquire(4, 4);
+    large.setFirstLayerRow(0, new int[] {1, 1, 2, 3});
+    large.setFirstLayerRow(1, new int[] {4, 4, 2, 3});
+    large.setFirstLayerRow(2, new int[] {5, 6, 6, 7});
+    large.setFirstLayerRow(3, new int[] {5, 8, 8, 7});
+    Assertions.assertTrue(large.solve().isSolved());
+    Layer secondLayer = large.getSecondLayer();
+    pool.release(large);
+
+    Brickwork small = pool.acquire(2, 4);
+    Assertions.assertSame(large, small);
+    Assertions.assertSame(secondLayer, small.getSecondLayer());
+    small.setFirstLayerRow(0, new int[] {1, 1, 2, 3});
+    small.setFirstLayerRow(1, new int[] {4, 4, 2, 3});
+    SolveResult result = small.solve();
+    Assertions.assertTrue(result.isSolved());
+    Assertions.assertEquals(
+        String.join(System.lineSeparator(), "1 2 3 3", "1 2 4 4"),
+        result.getSecondLayer().toString());
+    Assertions.assertNotSame(small, pool.acquire(2, 4));
+  }
+
+  @Test
+  public void when_stackingLayers_ShouldBuildEachOnTopOfThePrevious() throws IOException {
+    int[][] input = {{1, 1, 2, 3}, {4, 4, 2, 3}, {5, 6, 6, 7}, {5, 8, 8, 7}};
+    Brickwork brickwork = Brickwork.init(4, 4);
+    brickwork.setFirstLayer(input);
+    List<int[][]> layers = new ArrayList<>();
+    layers.add(input);
+    Layer[] storage = new Layer[2];
+    brickwork.stackLayers(
+        5,
+        (course, layer) -> {
+          Assertions.assertEquals(layers.size() + 1, course);
+          assertSolves(layers.get(layers.size() - 1), layer);
+          int[][] values = new int[4][4];
+          for (int row = 0; row < 4; row++) {
+            for (int col = 0; col < 4; col++) {
+              values[row][col] = layer.getValue(row, col);
+            }
+          }
+          layers.add(values);
+          storage[course % 2] = layer;
+        });
+    Assertions.assertEquals(5, layers.size());
+    Assertions.assertNotSame(storage[0], storage[1]);
+    Assertions.assertSame(storage[1], brickwork.getSecondLayer());
+  }
+
+  @Test
+  public void when_solutionSpace_ShouldCountListAndPickCheapest() {
+    int[][] input = {{1, 1, 2, 2}, {3, 3, 4, 4}};
+    Brickwork brickwork = Brickwork.init(2, 4);
+    brickwork.setFirstLayer(input);
+    SolutionSpace space = brickwork.getSolutionSpace();
+    Assertions.assertEquals(BigInteger.valueOf(2), space.count());
+    Assertions.assertEquals(0, space.count(2));
+    List<String> layers = new ArrayList<>();
+    for (Layer layer : space) {
+      assertSolves(input, layer);
+      layers.add(layer.toString());
+    }
+    String allVertical = String.join(System.lineSeparator(), "1 2 3 4", "1 2 3 4");
+    String twoVertical = String.join(System.lineSeparator(), "1 2 2 3", "1 4 4 3");
+    Collections.sort(layers);
+    Assertions.assertEquals(Arrays.asList(twoVertical, allVertical), layers);
+    Assertions.assertEquals(
+        twoVertical, space.cheapest(SolutionSpace.BrickCost.verticalBricks()).toString());
+
+    // Horizontal first-layer bricks at even cols leave each pair of cols from 1 to cols - 2 with
+    // either two vertical or two horizontal bricks, and vertical ones in the outer cols.
+    int cols = 200;
+    Brickwork strip = Brickwork.init(2, cols);
+    int[][] horizontal = new int[2][cols];
+    for (int col = 0; col < cols; col++) {
+      horizontal[0][col] = col / 2 + 1;
+      horizontal[1][col] = cols / 2 + col / 2 + 1;
+    }
+    strip.setFirstLayer(horizontal);
+    Assertions.assertEquals(BigInteger.TWO.pow(cols / 2 - 1), strip.getSolutionSpace().count());
+  }
+
+  @Test
+  public void when_solveInvalid_ShouldReportFailureWithoutThrowing() {
+    Brickwork brickwork = Brickwork.init(2, 4);
+    brickwork.setFirstLayerRow(0, new int[] {1, 1, 2, 3});
+    brickwork.setFirstLayerRow(1, new int[] {4, 4, 4, 3});
+    SolveResult result = brickwork.solve();
+    Assertions.assertFalse(result.isSolved());
+    Assertions.assertEquals(Failure.MISSING_HALF, result.getFailure());
+    Assertions.assertEquals(0, result.getRow());
+    Assertions.assertEquals(2, result.getCol());
+
+    brickwork.setFirstLayerRow(1, new int[] {4, 4, 2, 3});
+    Assertions.assertSame(result, brickwork.solve());
+    Assertions.assertTrue(result.isSolved());
+    Assertions.assertEquals(
+        String.join(System.lineSeparator(), "1 2 3 3", "1 2 4 4"),
+        result.getSecondLayer().toString());
+  }
+
+  @Test
+  public void when_deltaApplied_ShouldRepairOnlyAroundIt() {
+    int rows = 200;
+    int cols = 200;
+    int[][] input = new int[rows][cols];
+    int brick = 1;
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < cols; col += 2) {
+        input[row][col] = input[row][col + 1] = brick++;
+      }
+    }
+    Brickwork brickwork = Brickwork.init(rows, cols);
+    brickwork.setFirstLayer(input);
+    brickwork.setSecondLayer();
+    String[] before = brickwork.getSecondLayer().toString().split(System.lineSeparator());
+
+    // Two horizontal bricks turned into two vertical ones.
+    int[][] delta = {{brick, brick + 1}, {brick, brick + 1}};
+    brickwork.applyDelta(100, 100, delta);
+    input[100][100] = input[101][100] = brick;
+    input[100][101] = input[101][101] = brick + 1;
+
+    Layer secondLayer = brickwork.getSecondLayer();
+    assertSolves(input, secondLayer);
+    String[] after = secondLayer.toString().split(System.lineSeparator());
+    for (int row = 0; row < rows; row++) {
+      if (row < 90 || row > 110) {
+        Assertions.assertEquals(before[row], after[row]);
+      }
+    }
+    Assertions.assertThrows(
+        IllegalArgumentException.class,
+        () -> brickwork.applyDelta(0, 0, new int[][] {{7, 7, 7}}));
+  }
+
+  @Test
+  public void when_deltaReusesIdOutsideRegion_ShouldThrowAndKeepLayer() {
+    int[][] input = {{1, 1, 2, 2}, {3, 3, 4, 4}, {5, 5, 6, 6}, {7, 7, 8, 8}};
+    Brickwork brickwork = Brickwork.init(4, 4);
+    brickwork.setFirstLayer(input);
+    brickwork.setSecondLayer();
+    String before = brickwork.getSecondLayer().toString();
+
+    // Brick 1 still lies in the top row, far from the region.
+    Assertions.assertThrows(
+        IllegalArgumentException.class,
+        () -> brickwork.applyDelta(3, 0, new int[][] {{1, 1}}));
+    Assertions.assertTrue(brickwork.verify().isSolved());
+    Assertions.assertEquals(before, brickwork.getSecondLayer().toString());
+    Assertions.assertThrows(
+        IllegalArgumentException.class,
+        () -> brickwork.applyDelta(2, 0, new int[][] {{9, 9}, {10}}));
+    Assertions.assertTrue(brickwork.verify().isSolved());
+    Assertions.assertEquals(before, brickwork.getSecondLayer().toString());
+
+    // Id 7 is free again once its brick is replaced, id 9 is not.
+    brickwork.applyDelta(3, 0, new int[][] {{9, 9}});
+    Assertions.assertTrue(brickwork.verify().isSolved());
+    Assertions.assertThrows(
+        IllegalArgumentException.class,
+        () -> brickwork.applyDelta(0, 0, new int[][] {{9, 9}}));
+    brickwork.applyDelta(0, 0, new int[][] {{7, 7}});
+    Assertions.assertTrue(brickwork.verify().isSolved());
+  }
+
+  @Test
+  public void when_idsRemovedFromTable_ShouldKeepTheOthers() {
+    BrickIdSet ids = new BrickIdSet(8);
+    for (int id = 1000; id < 3000; id++) {
+      Assertions.assertTrue(ids.add(id));
+    }
+    for (int id = 1000; id < 3000; id += 2) {
+      ids.remove(id);
+    }
+    for (int id = 1000; id < 3000; id++) {
+      Assertions.assertEquals(id % 2 != 0, ids.contains(id));
+    }
+    Assertions.assertTrue(ids.add(1000));
+    Assertions.assertFalse(ids.add(1001));
+  }
+
+  // Every brick of the second layer spans two cells and does not lie on a first-layer brick.
+  private static void assertSolves(int[][] firstLayer, Layer secondLayer) {
+    int rows = firstLayer.length;
+    int cols = firstLayer[0].length;
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < cols; col++) {
+        int value = secondLayer.getValue(row, col);
+        int halves = 0;
+        if (col + 1 < cols && secondLayer.getValue(row, col + 1) == value) {
+          halves++;
+          Assertions.assertNotEquals(firstLayer[row][col], firstLayer[row][col + 1]);
+        }
+        if (row + 1 < rows && secondLayer.getValue(row + 1, col) == value) {
+          halves++;
+          Assertions.assertNotEquals(firstLayer[row][col], firstLayer[row + 1][col]);
+        }
+        if (col > 0 && secondLayer.getValue(row, col - 1) == value) halves++;
+        if (row > 0 && secondLayer.getValue(row - 1, col) == value) halves++;
+        Assertions.assertEquals(1, halves);
+      }
+    }
+  }
+
+  @Test
+  public void when_secondLayerVerified_ShouldReportFirstOffendingCell() {
+    Layer firstLayer = Layer.of(2, 4);
+    firstLayer.setRow(0, new int[] {1, 1, 2, 2});
+    firstLayer.setRow(1, new int[] {3, 3, 4, 4});
+    Layer secondLayer = Layer.of(2, 4);
+
+    secondLayer.setRow(0, new int[] {1, 2, 2, 3});
+    secondLayer.setRow(1, new int[] {1, 4, 4, 3});
+    Assertions.assertTrue(SecondLayerVerifier.verify(firstLayer, secondLayer).isSolved());
+
+    secondLayer.setRow(0, new int[] {1, 2, 2, 0});
+    assertFailure(firstLayer, secondLayer, Failure.UNCOVERED_CELL, 0, 3);
+
+    secondLayer.setRow(0, new int[] {1, 2, 2, 3});
+    secondLayer.setRow(1, new int[] {1, 2, 2, 3});
+    assertFailure(firstLayer, secondLayer, Failure.SPAN_TOO_LONG, 0, 1);
+
+    secondLayer.setRow(0, new int[] {1, 2, 2, 3});
+    secondLayer.setRow(1, new int[] {1, 4, 5, 5});
+    assertFailure(firstLayer, secondLayer, Failure.MISSING_HALF, 0, 3);
+
+    secondLayer.setRow(0, new int[] {1, 1, 2, 2});
+    secondLayer.setRow(1, new int[] {3, 3, 4, 4});
+    assertFailure(firstLayer, secondLayer, Failure.BRICK_ON_BRICK, 0, 0);
+
+    Layer wide = Layer.of(2, 6);
+    wide.setRow(0, new int[] {1, 1, 2, 2, 3, 3});
+    wide.setRow(1, new int[] {4, 4, 5, 5, 6, 6});
+    Layer duplicate = Layer.of(2, 6);
+    duplicate.setRow(0, new int[] {1, 2, 2, 3, 3, 4});
+    duplicate.setRow(1, new int[] {1, 5, 5, 2, 2, 4});
+    assertFailure(wide, duplicate, Failure.DUPLICATE_ID, 1, 3);
+
+    Brickwork brickwork = Brickwork.init(2, 4);
+    brickwork.setFirstLayer(new int[][] {{1, 1, 2, 2}, {3, 3, 4, 4}});
+    Assertions.assertTrue(brickwork.solve().isSolved());
+    Assertions.assertTrue(brickwork.verify().isSolved());
+  }
+
+  private static void assertFailure(
+      Layer firstLayer, Layer secondLayer, Failure failure, int row, int col) {
+    SolveResult result = SecondLayerVerifier.verify(firstLayer, secondLayer);
+    Assertions.assertEquals(failure, result.getFailure());
+    Assertions.assertEquals(row, result.getRow());
+    Assertions.assertEquals(col, result.getCol());
+  }
+
+  @Test
+  public void when_generatedWallWritten_ShouldBeReadBySameLayer() {
+    WallGenerator generator = WallGenerator.of(7).pattern(WallGenerator.Pattern.ADVERSARIAL);
+    int[][] layer = generator.generate(6, 8);
+    Assertions.assertArrayEquals(layer, generator.generate(6, 8));
+
+    StringBuilder text = new StringBuilder();
+    Assertions.assertDoesNotThrow(() -> generator.write(6, 8, text));
+    Manager manager =
+        new Manager(
+            new StreamInputReader(
+                new ByteArrayInputStream(text.toString().getBytes(StandardCharsets.US_ASCII))));
+    manager.run();
+    Brickwork brickwork = Brickwork.init(6, 8);
+    brickwork.setFirstLayer(layer);
+    brickwork.setSecondLayer();
+    Assertions.assertEquals(brickwork.getSecondLayer().toString(), manager.toStringSecondLayer());
+
+    int[][] stripes =
+        WallGenerator.of(7).pattern(WallGenerator.Pattern.STRIPES).stripeHeight(4).generate(8, 4);
+    Assertions.assertArrayEquals(new int[] {1, 1, 3, 3}, stripes[0]);
+    Assertions.assertArrayEquals(new int[] {9, 10, 11, 12}, stripes[4]);
+    Assertions.assertThrows(IllegalArgumentException.class, () -> generator.generate(3, 4));
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideScaleWalls")
+  public void when_largeWall_ShouldStayWithinBudgets(int size, WallGenerator.Pattern pattern) {
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long thread = Thread.currentThread().getId();
+    long cells = (long) size * size;
+    int[][] layer = WallGenerator.of(size).pattern(pattern).generate(size, size);
+    Brickwork brickwork = Brickwork.init(size, size);
+    for (int i = 0; i < 3; i++) {
+      brickwork.setFirstLayer(layer);
+      brickwork.setSecondLayer();
+    }
+
+    long allocated = threads.getThreadAllocatedBytes(thread);
+    long start = System.nanoTime();
+    brickwork.setFirstLayer(layer);
+    brickwork.setSecondLayer();
+    long elapsed = System.nanoTime() - start;
+    allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+
+    Assertions.assertTrue(brickwork.verify().isSolved());
+    // A microsecond per cell leaves plenty of room for slow machines.
+    Assertions.assertTrue(elapsed < 200_000_000 + cells * 1_000, elapsed + " ns");
+    // Only the set of brick ids of the validator grows with the wall, a bit per brick.
+    Assertions.assertTrue(allocated < 64 * 1024 + cells / 4, allocated + " B");
+  }
+
+  private static Stream<Arguments> provideScaleWalls() {
+    Stream.Builder<Arguments> walls = Stream.builder();
+    for (int size : new int[] {32, 100, 320, 1000}) {
+      for (WallGenerator.Pattern pattern : WallGenerator.Pattern.values()) {
+        walls.add(Arguments.of(size, pattern));
+      }
+    }
+    return walls.build();
+  }
+
+  @Test
+  public void when_deadlinePassed_ShouldReturnPartialLayer() {
+    int[][] input = {{1, 1, 2, 3}, {4, 4, 2, 3}, {5, 6, 6, 7}, {5, 8, 8, 7}};
+    Brickwork brickwork = Brickwork.init(4, 4);
+    for (int row = 0; row < input.length; row++) {
+      brickwork.setFirstLayerRow(row, input[row]);
+    }
+    SolveResult solved = brickwork.solve(Deadline.none());
+    Assertions.assertTrue(solved.isSolved());
+    Assertions.assertEquals(8, solved.getPlacedBricks());
+    Assertions.assertEquals(0, solved.getUncoveredCells());
+
+    brickwork.reset(4, 4);
+    for (int row = 0; row < input.length; row++) {
+      brickwork.setFirstLayerRow(row, input[row]);
+    }
+    Deadline deadline = Deadline.none();
+    deadline.cancel();
+    SolveResult partial = brickwork.solve(deadline);
+    Assertions.assertFalse(partial.isSolved());
+    Assertions.assertEquals(Failure.DEADLINE_EXCEEDED, partial.getFailure());
+    Assertions.assertEquals(0, partial.getPlacedBricks());
+    Assertions.assertEquals(16, partial.getUncoveredCells());
+    Assertions.assertEquals(0, partial.getRow());
+    Assertions.assertEquals(0, partial.getCol());
+  }
+
+  @Test
+  public void when_deadlinePassesMidSolve_ShouldClearStaleCells() {
+    int size = 64;
+    Brickwork brickwork = Brickwork.init(size, size);
+    WallGenerator.of(1).generate(brickwork);
+    Assertions.assertTrue(brickwork.solve(Deadline.none()).isSolved());
+
+    // The greedy checks before its first and its 1025th brick, the wall holds 2048.
+    brickwork.reset(size, size);
+    WallGenerator.of(2).horizontalRatio(0).generate(brickwork);
+    SolveResult partial = brickwork.solve(Deadline.afterChecks(2));
+    Assertions.assertEquals(Failure.DEADLINE_EXCEEDED, partial.getFailure());
+    Assertions.assertEquals(Deadline.CHECK_INTERVAL, partial.getPlacedBricks());
+    assertPartialLayer(partial);
+  }
+
+  @Test
+  public void when_deadlinePassesInFallback_ShouldReturnPartialLayer() {
+    int size = 64;
+    WallGenerator generator = WallGenerator.of(3).pattern(WallGenerator.Pattern.ADVERSARIAL);
+    Brickwork brickwork = Brickwork.init(size, size);
+    generator.generate(brickwork);
+    Deadline counting = Deadline.afterChecks(Integer.MAX_VALUE);
+    Assertions.assertTrue(brickwork.solve(counting).isSolved());
+    String[] solved = brickwork.getSecondLayer().toString().split(System.lineSeparator());
+
+    // The greedy gets stuck, so the last check is the block solver's one before its 513th block,
+    // which leaves the upper half of the wall covered.
+    brickwork.reset(size, size);
+    generator.generate(brickwork);
+    SolveResult partial = brickwork.solve(Deadline.afterChecks(counting.getChecks()));
+    Assertions.assertEquals(Failure.DEADLINE_EXCEEDED, partial.getFailure());
+    Assertions.assertEquals(Deadline.CHECK_INTERVAL, partial.getPlacedBricks());
+    Assertions.assertEquals(size / 2, partial.getRow());
+    Assertions.assertEquals(0, partial.getCol());
+    String[] rows = partial.getSecondLayer().toString().split(System.lineSeparator());
+    Assertions.assertArrayEquals(
+        Arrays.copyOf(solved, size / 2), Arrays.copyOf(rows, size / 2));
+    assertPartialLayer(partial);
+  }
+
+  @Test
+  public void when_firstLayerReplaced_ShouldPlaceBricksFromScratch() {
+    int[][] first = {{1, 1, 2, 2}, {3, 3, 4, 4}};
+    int[][] second = {{1, 2, 2, 3}, {1, 4, 4, 3}};
+    Brickwork fresh = Brickwork.init(2, 4);
+    fresh.setFirstLayer(second);
+    fresh.setSecondLayer();
+
+    Brickwork brickwork = Brickwork.init(2, 4);
+    brickwork.setFirstLayer(first);
+    brickwork.setSecondLayer();
+    brickwork.setFirstLayer(second);
+    brickwork.getSecondLayer().clear();
+    while (!brickwork.getSecondLayer().isComplete()) {
+      Assertions.assertTrue(brickwork.placeBricks());
+    }
+    Assertions.assertEquals(
+        fresh.getSecondLayer().toString(), brickwork.getSecondLayer().toString());
+  }
+
+  // Exactly the uncovered cells read 0, and the first of them is the one reported.
+  private static void assertPartialLayer(SolveResult partial) {
+    Layer layer = partial.getSecondLayer();
+    long first = -1;
+    long zeros = 0;
+    for (long cell = 0; cell < (long) layer.getRows() * layer.getCols(); cell++) {
+      int value = layer.getValue(cell);
+      Assertions.assertTrue(value >= 0 && value <= partial.getPlacedBricks());
+      if (value == 0) {
+        first = first == -1 ? cell : first;
+        zeros++;
+      }
+    }
+    Assertions.assertEquals(partial.getUncoveredCells(), zeros);
+    Assertions.assertEquals(first / layer.getCols(), partial.getRow());
+    Assertions.assertEquals(first % layer.getCols(), partial.getCol());
+  }
+
+  @Test
+  public void when_binaryLayers_ShouldRoundTrip(@TempDir Path directory) throws IOException {
+    Path input = directory.resolve("first.bin");
+    Path output = directory.resolve("second.bin");
+    for (int offset : new int[] {0, 1000, 100000}) {
+      Layer firstLayer = Layer.of(4, 4);
+      int[][] rows = {{1, 1, 2, 3}, {4, 4, 2, 3}, {5, 6, 6, 7}, {5, 8, 8, 7}};
+      for (int row = 0; row < rows.length; row++) {
+        for (int col = 0; col < rows[row].length; col++) {
+          rows[row][col] += offset;
+        }
+        firstLayer.setRow(row, rows[row]);
+      }
+      BinaryLayerWriter.write(firstLayer, input);
+      Assertions.assertEquals(
+          16 + 16 * (offset == 0 ? 1 : offset == 1000 ? 2 : 4), Files.size(input));
+
+      Manager.runBinary(input, output);
+      BinaryLayerReader secondLayer = BinaryLayerReader.open(output);
+      Brickwork expected = Brickwork.init(4, 4);
+      expected.setFirstLayer(BinaryLayerReader.open(input));
+      Assertions.assertTrue(expected.solve().isSolved());
+      int[] values = new int[4];
+      for (int row = 0; row < 4; row++) {
+        secondLayer.readRow(row, values);
+        for (int col = 0; col < 4; col++) {
+          Assertions.assertEquals(expected.getSecondLayer().getValue(row, col), values[col]);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void when_sameShapeRenumbered_ShouldHitCache(@TempDir Path directory)
+      throws IOException {
+    SolutionCache cache = new SolutionCache(16);
+    Brickwork first = Brickwork.init(2, 4);
+    first.setFirstLayer(new int[][] {{1, 1, 2, 3}, {4, 4, 2, 3}});
+    first.setSecondLayer(cache);
+    Brickwork renumbered = Brickwork.init(2, 4);
+    renumbered.setFirstLayer(new int[][] {{9, 9, 7, 5}, {30, 30, 7, 5}});
+    renumbered.setSecondLayer(cache);
+    Assertions.assertEquals(1, cache.getMisses());
+    Assertions.assertEquals(1, cache.getHits());
+    Assertions.assertEquals(
+        first.getSecondLayer().toString(), renumbered.getSecondLayer().toString());
+
+    Path file = directory.resolve("cache");
+    cache.save(file);
+    SolutionCache loaded = new SolutionCache(8);
+    loaded.load(file);
+    Brickwork other = Brickwork.init(2, 4);
+    other.setFirstLayer(new int[][] {{1, 2, 2, 3}, {1, 4, 4, 3}});
+    other.setSecondLayer(loaded);
+    Assertions.assertEquals(1, loaded.getEvictions());
+    Assertions.assertEquals(1, loaded.size());
+  }
+
+  @Test
+  public void when_server_ShouldAnswerWithSecondLayer() throws IOException {
+    BrickworkServer server = BrickworkServer.start(0, 2, 4);
+    try {
+      String body =
+          String.join(
+              System.lineSeparator(), "2 4", "1 1 2 2", "3 3 4 4", "", "2 4", "1 1 1 2", "3 3 4 2");
+      HttpURLConnection connection = post(server, body);
+      Assertions.assertEquals(200, connection.getResponseCode());
+      try (InputStream in = connection.getInputStream()) {
+        Assertions.assertEquals(
+            String.join(System.lineSeparator(), "2 1 1 4", "2 3 3 4", "", "-1", "", ""),
+            new String(in.readAllBytes(), StandardCharsets.US_ASCII));
+      }
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void when_serverRequestTooLarge_ShouldSkipWallsBeyondLimit() throws IOException {
+    BrickworkServer server = BrickworkServer.start(0, 2, 4, 16);
+    try {
+      // Rows of a billion cells would take 4GB before the first one is read.
+      String body =
+          String.join(
+              System.lineSeparator(),
+              "2 1000000000",
+              "",
+              "2 4",
+              "1 1 2 2",
+              "3 3 4 4",
+              "",
+              "2 8",
+              "1 1 2 2 3 3 4 4",
+              "5 5 6 6 7 7 8 8");
+      HttpURLConnection connection = post(server, body);
+      Assertions.assertEquals(200, connection.getResponseCode());
+      try (InputStream in = connection.getInputStream()) {
+        Assertions.assertEquals(
+            String.join(System.lineSeparator(), "-1", "", "2 1 1 4", "2 3 3 4", "", "-1", "", ""),
+            new String(in.readAllBytes(), StandardCharsets.US_ASCII));
+      }
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void when_serverWorkersBusy_ShouldTurnRequestDown() throws IOException {
+    ExecutorService workers = Executors.newSingleThreadExecutor();
+    workers.shutdown();
+    BrickworkServer server = new BrickworkServer(new InetSocketAddress(0), workers, 16);
+    server.start();
+    try {
+      Assertions.assertEquals(503, post(server, "2 4").getResponseCode());
+    } finally {
+      server.stop();
+    }
+  }
+
+  private static HttpURLConnection post(BrickworkServer server, String body) throws IOException {
+    URL url = new URL("http://localhost:" + server.getPort() + BrickworkServer.PATH);
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    try (OutputStream out = connection.getOutputStream()) {
+      out.write(body.getBytes(StandardCharsets.US_ASCII));
+    }
+    return connection;
+  }
+
   @ParameterizedTest
   @MethodSource("provideInvalidInputs")
   public void when_invalidInput_ShouldThrow(String dimension, String[] input) throws IOException {
@@ -116,6 +1165,13 @@ class BrickworkTest {
     Assertions.assertThrows(NoSolutionException.class, manager::run);
   }
 
+  @ParameterizedTest
+  @MethodSource("provideInvalidInputs")
+  public void when_invalidInputStream_ShouldThrow(String dimension, String[] input) {
+    Manager manager = new Manager(streamReader(dimension, input));
+    Assertions.assertThrows(NoSolutionException.class, manager::run);
+  }
+
   private static Stream<Arguments> provideInvalidInputs() {
     return Stream.of(
         Arguments.of(
@@ -141,7 +1197,7 @@ class BrickworkTest {
         Arguments.of("3 4", new String[] {}), // Odd number of rows
         Arguments.of("2 5", new String[] {}), // Odd number of cols
         Arguments.of("-12 10", new String[] {}), // Invalid number of rows
-        Arguments.of("2 100", new String[] {}), // Invalid number of cols
+        Arguments.of("2 0", new String[] {}), // Invalid number of cols
         Arguments.of(
             "2 4",
             new String[] {
@@ -159,26 +1215,29 @@ class BrickworkTest {
         Arguments.of(
             "2 4",
             new String[] {
-              "0 1 1 2", // Brick is with invalid value
-              "0 3 3 2", //
+              "1 1 2 3", // Invalid L-shaped brick
+              "1 4 2 3", //
               ""
             }),
         Arguments.of(
             "2 4",
             new String[] {
-              "4 1 1 2", // Brick is with invalid value
-              "d 3 3 2", //
+              "1 1 2 2", // Brick's value used twice
+              "3 3 1 1", //
               ""
             }),
         Arguments.of(
-            "6 10",
+            "2 4",
             new String[] {
-              "1 1 2 2 3 3 4 4 5 5", // Case with no solution
-              "6 6 7 7 8 8 9 9 10 10", //
-              "11 11 16 12 12 13 13 19 14 14", //
-              "15 15 16 17 17 18 18 19 20 20", //
-              "21 21 77 55 23 23 47 49 60 70", //
-              "99 99 77 55 33 33 47 49 60 70", //
+              "0 1 1 2", // Brick is with invalid value
+              "0 3 3 2", //
+              ""
+            }),
+        Arguments.of(
+            "2 4",
+            new String[] {
+              "4 1 1 2", // Brick is with invalid value
+              "d 3 3 2", //
               ""
             }));
   }